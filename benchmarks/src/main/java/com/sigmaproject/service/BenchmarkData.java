@@ -0,0 +1,166 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.Department;
+import com.sigmaproject.model.EmployeeIndex;
+import com.sigmaproject.model.Manager;
+import com.sigmaproject.utils.IdIndex;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic input shared by the stage benchmarks.
+ * <p>
+ * The input is an .sb file of {@link #rows} lines with one manager per
+ * {@link #DEPARTMENT_SIZE} lines, generated from a fixed seed. A share of
+ * {@link #errorRatio} lines is rejected by the parser or the join: lines with an
+ * invalid salary or a wrong number of fields, and employees of unknown managers.
+ * A share of {@link #duplicateRatio} lines repeats the ID of an earlier employee or
+ * opens a department that already has a manager. The file is parsed once with
+ * {@link FileService#processLines}, so the benchmarks of later stages start from the
+ * same managers and employees as a real run.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+
+    /**
+     * Number of lines per department.
+     */
+    static final int DEPARTMENT_SIZE = 1000;
+
+    private static final long SEED = 42L;
+
+    private static final String[] FIRST_NAMES = {"Ann", "bob", "Carl", "dora", "Éva", "zed", "Oleh", "alan"};
+    private static final String[] LAST_NAMES = {"Smith", "Kovalenko", "brown", "Ølsen", "Lee", "de la Cruz"};
+
+    /**
+     * Number of input lines.
+     */
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    /**
+     * Share of lines that are rejected.
+     */
+    @Param({"0.01"})
+    public double errorRatio;
+
+    /**
+     * Share of lines with a duplicate employee ID or a duplicate department manager.
+     */
+    @Param({"0.01"})
+    public double duplicateRatio;
+
+    /**
+     * The generated input file.
+     */
+    Path file;
+
+    /**
+     * The managers accepted from the input file.
+     */
+    IdIndex<Manager> managers;
+
+    /**
+     * The employees accepted from the input file.
+     */
+    EmployeeIndex employees;
+
+    /**
+     * Generates the input file and parses it.
+     *
+     * @throws IOException if the file cannot be written or read
+     */
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        file = Files.createTempFile("sb-bench-", ".sb");
+        Random random = new Random(SEED);
+        int departments = Math.max(1, rows / DEPARTMENT_SIZE);
+        int nextEmployeeId = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                double r = random.nextDouble();
+                if (i % DEPARTMENT_SIZE == 0) {
+                    int d = i / DEPARTMENT_SIZE;
+                    out.write("Manager,m" + d + "," + name(random) + "," + salary(random) + ",Department " + d);
+                } else if (r < errorRatio) {
+                    out.write(errorLine(random, departments));
+                } else if (r < errorRatio + duplicateRatio && nextEmployeeId > 0) {
+                    if (random.nextInt(10) == 0) {
+                        out.write("Manager,dm" + i + "," + name(random) + "," + salary(random)
+                                + ",Department " + random.nextInt(departments));
+                    } else {
+                        out.write("Employee," + random.nextInt(nextEmployeeId) + "," + name(random) + ","
+                                + salary(random) + ",m" + random.nextInt(departments));
+                    }
+                } else {
+                    out.write("Employee," + nextEmployeeId++ + "," + name(random) + "," + salary(random)
+                            + ",m" + random.nextInt(departments));
+                }
+                out.newLine();
+            }
+        }
+
+        managers = new IdIndex<>();
+        employees = new EmployeeIndex();
+        try (LineSource source = new ReaderLineSource(file)) {
+            FileService.processLines(source, managers, employees, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Deletes the input file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Creates the departments and distributes the employees, as a run does before sorting.
+     *
+     * @param params command line parameters
+     * @return the departments with their employees in read order
+     */
+    Map<String, Department> departments(CommandLineArgsService params) {
+        Map<String, Department> departments =
+                DepartmentService.createDepartments(managers, new ArrayList<>(), params);
+        EmployeeService.distributeEmployees(employees, managers, departments, new ArrayList<>(), params);
+        return departments;
+    }
+
+    private static String name(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private static String salary(Random random) {
+        int cents = 100_000 + random.nextInt(900_000);
+        return random.nextBoolean() ? Integer.toString(cents / 100) : cents / 100 + "." + cents % 100 / 10 + cents % 10;
+    }
+
+    private static String errorLine(Random random, int departments) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "Employee,e" + random.nextInt() + "," + name(random) + ",n/a,m" + random.nextInt(departments);
+            case 1:
+                return "Employee," + name(random) + "," + salary(random);
+            default:
+                return "Employee,o" + random.nextInt() + "," + name(random) + "," + salary(random) + ",unknown";
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.Department;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the join stage: creating the departments from the managers and
+ * distributing the employees to them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class JoinBenchmark {
+
+    private final CommandLineArgsService params = new CommandLineArgsService(new String[0]);
+
+    private Map<String, Department> departments;
+
+    /**
+     * Creates empty departments for {@link #distributeEmployees}.
+     *
+     * @param data the input
+     */
+    @Setup(Level.Invocation)
+    public void createEmptyDepartments(BenchmarkData data) {
+        departments = DepartmentService.createDepartments(data.managers, new ArrayList<>(), params);
+    }
+
+    /**
+     * Creates the departments with {@link DepartmentService#createDepartments}.
+     *
+     * @param data the input
+     * @return the departments
+     */
+    @Benchmark
+    public Map<String, Department> createDepartments(BenchmarkData data) {
+        return DepartmentService.createDepartments(data.managers, new ArrayList<>(), params);
+    }
+
+    /**
+     * Distributes the employees with {@link EmployeeService#distributeEmployees}.
+     *
+     * @param data the input
+     * @return the error lines
+     */
+    @Benchmark
+    public List<String> distributeEmployees(BenchmarkData data) {
+        List<String> errorLines = new ArrayList<>();
+        EmployeeService.distributeEmployees(data.employees, data.managers, departments, errorLines, params);
+        return errorLines;
+    }
+}
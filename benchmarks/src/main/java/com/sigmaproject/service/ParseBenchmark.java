@@ -0,0 +1,98 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.EmployeeIndex;
+import com.sigmaproject.model.Manager;
+import com.sigmaproject.utils.IdIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the parse stage: reading an input file line by line into the manager and
+ * employee indexes, and parsing single salaries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+    /**
+     * Salaries parsed by one invocation of {@link #parseSalary}.
+     */
+    private static final int SALARIES = 1024;
+
+    /**
+     * Salary strings in the forms found in input files, including rejected ones.
+     */
+    @State(Scope.Thread)
+    public static class Salaries {
+
+        String[] values;
+
+        /**
+         * Generates the salary strings.
+         */
+        @Setup(Level.Trial)
+        public void generate() {
+            Random random = new Random(42L);
+            String[] forms = {"%d", "%d.%02d", " %d.5 ", "%d.0", "%de2", "n/a", "-%d"};
+            values = new String[SALARIES];
+            for (int i = 0; i < SALARIES; i++) {
+                values[i] = String.format(forms[random.nextInt(forms.length)], random.nextInt(100_000), random.nextInt(100));
+            }
+        }
+    }
+
+    /**
+     * Reads the input file with {@link FileService#processLines}.
+     *
+     * @param data      the input
+     * @param blackhole sink for the result
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public void processLines(BenchmarkData data, Blackhole blackhole) throws IOException {
+        IdIndex<Manager> managers = new IdIndex<>();
+        EmployeeIndex employees = new EmployeeIndex();
+        List<String> errorLines = new ArrayList<>();
+        try (LineSource source = new ReaderLineSource(data.file)) {
+            FileService.processLines(source, managers, employees, errorLines);
+        }
+        blackhole.consume(managers);
+        blackhole.consume(employees);
+        blackhole.consume(errorLines);
+    }
+
+    /**
+     * Parses salaries with {@link SalaryService#parseSalary}; the score is per salary.
+     *
+     * @param salaries  the salary strings
+     * @param blackhole sink for the results
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(SALARIES)
+    public void parseSalary(Salaries salaries, Blackhole blackhole) {
+        for (String value : salaries.values) {
+            blackhole.consume(SalaryService.parseSalary(value));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.Department;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the sort stage for every sort field and order. Every invocation sorts
+ * freshly distributed departments, whose employees are in read order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SortBenchmark {
+
+    /**
+     * The sort field.
+     */
+    @Param({"name", "salary"})
+    public String sortBy;
+
+    /**
+     * The sort order.
+     */
+    @Param({"asc", "desc"})
+    public String order;
+
+    private CommandLineArgsService params;
+    private Map<String, Department> departments;
+
+    /**
+     * Parses the sort options.
+     */
+    @Setup(Level.Trial)
+    public void parseOptions() {
+        params = new CommandLineArgsService(new String[]{"--sort=" + sortBy, "--order=" + order});
+    }
+
+    /**
+     * Distributes the employees to new departments.
+     *
+     * @param data the input
+     */
+    @Setup(Level.Invocation)
+    public void distribute(BenchmarkData data) {
+        departments = data.departments(params);
+    }
+
+    /**
+     * Sorts the departments with {@link EmployeeService#sortEmployees}.
+     *
+     * @return the sorted departments
+     */
+    @Benchmark
+    public Map<String, Department> sortEmployees() {
+        EmployeeService.sortEmployees(departments, params);
+        return departments;
+    }
+}
@@ -0,0 +1,78 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.Department;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the statistics stage, with and without percentiles. The statistics are
+ * written to a temporary file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class StatisticsBenchmark {
+
+    /**
+     * Whether the percentile columns are computed.
+     */
+    @Param({"false", "true"})
+    public boolean percentiles;
+
+    private Path statistics;
+    private CommandLineArgsService params;
+    private Map<String, Department> departments;
+
+    /**
+     * Distributes the employees and parses the statistics options.
+     *
+     * @param data the input
+     * @throws IOException if the statistics file cannot be created
+     */
+    @Setup(Level.Trial)
+    public void distribute(BenchmarkData data) throws IOException {
+        statistics = Files.createTempFile("sb-bench-stats-", ".txt");
+        params = percentiles
+                ? new CommandLineArgsService(new String[]{"--stat", "--percentiles", "-o=file", "--path=" + statistics})
+                : new CommandLineArgsService(new String[]{"--stat", "-o=file", "--path=" + statistics});
+        departments = data.departments(params);
+    }
+
+    /**
+     * Deletes the statistics file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(statistics);
+    }
+
+    /**
+     * Computes and writes the statistics with {@link StatisticsService#writeStatistics}.
+     */
+    @Benchmark
+    public void writeStatistics() {
+        StatisticsService.writeStatistics(departments, params);
+    }
+}
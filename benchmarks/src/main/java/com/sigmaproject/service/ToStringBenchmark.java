@@ -0,0 +1,62 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.Employee;
+import com.sigmaproject.model.Manager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link com.sigmaproject.model.Person#toString}, which renders the records of
+ * the error log, for whole and fractional salaries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ToStringBenchmark {
+
+    private final Employee employee = new Employee("100234", "Éva Kovalenko", 4512.75, "m17");
+    private final Employee wholeSalaryEmployee = new Employee("100235", "bob Smith", 3000.0, "m17");
+    private final Manager manager = new Manager("m17", "Carl brown", 8100.5, "Department 17");
+
+    /**
+     * Renders an employee with a fractional salary.
+     *
+     * @return the rendered record
+     */
+    @Benchmark
+    public String employee() {
+        return employee.toString();
+    }
+
+    /**
+     * Renders an employee with a whole salary.
+     *
+     * @return the rendered record
+     */
+    @Benchmark
+    public String wholeSalaryEmployee() {
+        return wholeSalaryEmployee.toString();
+    }
+
+    /**
+     * Renders a manager.
+     *
+     * @return the rendered record
+     */
+    @Benchmark
+    public String manager() {
+        return manager.toString();
+    }
+}
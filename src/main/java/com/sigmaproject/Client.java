@@ -0,0 +1,25 @@
+package com.sigmaproject;
+
+import com.sigmaproject.service.DaemonClient;
+
+import static com.sigmaproject.utils.Constant.FINAL_MESSAGE;
+
+/**
+ * Entry point of the thin client that runs the application on the daemon.
+ */
+public class Client {
+
+    /**
+     * Runs a job with the given command-line arguments on the daemon.
+     *
+     * @param args command-line arguments
+     */
+    public static void main(String[] args) {
+
+        try {
+            DaemonClient.run(args);
+        } catch (Exception e) {
+            System.err.println(FINAL_MESSAGE);
+        }
+    }
+}
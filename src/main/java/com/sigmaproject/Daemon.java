@@ -0,0 +1,26 @@
+package com.sigmaproject;
+
+import com.sigmaproject.service.DaemonArgsService;
+import com.sigmaproject.service.DaemonService;
+
+import static com.sigmaproject.utils.Constant.FINAL_MESSAGE;
+
+/**
+ * Entry point of the daemon that runs jobs on a warm JVM.
+ */
+public class Daemon {
+
+    /**
+     * Listens for jobs until the process is stopped.
+     *
+     * @param args command-line arguments
+     */
+    public static void main(String[] args) {
+
+        try {
+            DaemonService.serve(new DaemonArgsService(args));
+        } catch (Exception e) {
+            System.err.println(FINAL_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.sigmaproject;
+
+import com.sigmaproject.service.GeneratorArgsService;
+import com.sigmaproject.service.GeneratorService;
+
+import static com.sigmaproject.utils.Constant.FINAL_MESSAGE;
+
+/**
+ * Entry point of the synthetic dataset generator.
+ */
+public class Generator {
+
+    /**
+     * Writes the shard files of a synthetic dataset.
+     *
+     * @param args command-line arguments
+     */
+    public static void main(String[] args) {
+
+        try {
+            GeneratorService.generate(new GeneratorArgsService(args));
+        } catch (Exception e) {
+            System.err.println(FINAL_MESSAGE);
+        }
+    }
+}
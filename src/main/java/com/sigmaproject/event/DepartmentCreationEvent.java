@@ -0,0 +1,29 @@
+package com.sigmaproject.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for creating the departments from the managers.
+ */
+@Name("com.sigmaproject.DepartmentCreation")
+@Label("Department Creation")
+@Category({"SigmaBank", "Pipeline"})
+@Description("Creation of the departments from the accepted managers")
+@Threshold("0 ms")
+@StackTrace(false)
+public class DepartmentCreationEvent extends jdk.jfr.Event {
+
+    @Label("Managers")
+    public long managers;
+
+    @Label("Departments")
+    public long departments;
+
+    @Label("Duplicate Managers")
+    public long duplicateManagers;
+}
@@ -0,0 +1,37 @@
+package com.sigmaproject.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for sorting the employees of one department.
+ */
+@Name("com.sigmaproject.DepartmentSort")
+@Label("Department Sort")
+@Category({"SigmaBank", "Pipeline"})
+@Description("Sorting of the employees of a department")
+@Threshold("10 ms")
+@StackTrace(false)
+public class DepartmentSortEvent extends jdk.jfr.Event {
+
+    @Label("Department")
+    public String department;
+
+    @Label("Size")
+    @Description("Number of employees sorted")
+    public long size;
+
+    @Label("Sort Key")
+    public String sortKey;
+
+    @Label("Order")
+    public String order;
+
+    @Label("Parallel")
+    @Description("Whether the department was sorted on several threads")
+    public boolean parallel;
+}
@@ -0,0 +1,36 @@
+package com.sigmaproject.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for rendering and writing the output file of one department.
+ */
+@Name("com.sigmaproject.DepartmentWrite")
+@Label("Department Write")
+@Category({"SigmaBank", "I/O"})
+@Description("Rendering of a department and writing of its output file")
+@Threshold("10 ms")
+@StackTrace(false)
+public class DepartmentWriteEvent extends jdk.jfr.Event {
+
+    @Label("Department")
+    public String department;
+
+    @Label("Employees")
+    public long employees;
+
+    @Label("Bytes")
+    @Description("Size of the rendered content")
+    @DataAmount
+    public long bytes;
+
+    @Label("Written")
+    @Description("Whether the file was written; false if its content was unchanged")
+    public boolean written;
+}
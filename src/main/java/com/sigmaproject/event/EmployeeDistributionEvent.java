@@ -0,0 +1,30 @@
+package com.sigmaproject.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for distributing the employees to their departments.
+ */
+@Name("com.sigmaproject.EmployeeDistribution")
+@Label("Employee Distribution")
+@Category({"SigmaBank", "Pipeline"})
+@Description("Distribution of the accepted employees to the departments of their managers")
+@Threshold("0 ms")
+@StackTrace(false)
+public class EmployeeDistributionEvent extends jdk.jfr.Event {
+
+    @Label("Employees")
+    public long employees;
+
+    @Label("Orphans")
+    @Description("Employees without a known manager")
+    public long orphans;
+
+    @Label("Departments")
+    public long departments;
+}
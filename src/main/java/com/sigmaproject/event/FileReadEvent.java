@@ -0,0 +1,36 @@
+package com.sigmaproject.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for reading and parsing one input file.
+ */
+@Name("com.sigmaproject.FileRead")
+@Label("File Read")
+@Category({"SigmaBank", "I/O"})
+@Description("Reading and parsing of an input file, or loading its parse result from the parse cache")
+@Threshold("1 ms")
+@StackTrace(false)
+public class FileReadEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Lines")
+    @Description("Number of lines read; for a file loaded from the parse cache, the number of non-blank lines")
+    public long lines;
+
+    @Label("Cached")
+    @Description("Whether the parse result was loaded from the parse cache")
+    public boolean cached;
+}
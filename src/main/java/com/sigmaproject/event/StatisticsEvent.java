@@ -0,0 +1,30 @@
+package com.sigmaproject.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for computing and writing the department statistics.
+ */
+@Name("com.sigmaproject.Statistics")
+@Label("Statistics")
+@Category({"SigmaBank", "Pipeline"})
+@Description("Computation and output of the department statistics")
+@Threshold("0 ms")
+@StackTrace(false)
+public class StatisticsEvent extends jdk.jfr.Event {
+
+    @Label("Departments")
+    public long departments;
+
+    @Label("Percentiles")
+    @Description("Whether percentiles were computed")
+    public boolean percentiles;
+
+    @Label("Output")
+    public String output;
+}
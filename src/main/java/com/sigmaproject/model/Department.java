@@ -4,14 +4,13 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Represents a department within an organization.
  * <p>
  * This class holds information about the department's name, its manager,
- * and a list of employees working in the department.
+ * and a list of employees working in the department. The employees are kept
+ * in a column-oriented {@link EmployeeStore}, and their salary statistics are
+ * accumulated in a {@link SalaryStats} as employees are added.
  * </p>
  */
 @Builder
@@ -32,6 +31,17 @@ public class Department {
     /**
      * The list of employees in the department.
      */
-    private final List<Employee> employees = new ArrayList<>();
+    private final EmployeeStore employees = new EmployeeStore();
+
+    /**
+     * The salary statistics of the employees in the department.
+     */
+    private final SalaryStats salaryStats = new SalaryStats();
+
+    /**
+     * The employees of the department that were spilled to run files; empty unless
+     * the department outgrew the spill threshold.
+     */
+    private final SpilledRuns spilledRuns = new SpilledRuns();
 
 }
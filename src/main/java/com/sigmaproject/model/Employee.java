@@ -1,5 +1,6 @@
 package com.sigmaproject.model;
 
+import com.sigmaproject.utils.LineSpan;
 import lombok.*;
 
 /**
@@ -18,6 +19,13 @@ public class Employee extends Person {
      */
     private final String managerId;
 
+    /**
+     * The {@link LineSpan} of the input line the employee was read from, if the line
+     * is exactly the output form of the employee; {@link LineSpan#NONE} otherwise.
+     */
+    @EqualsAndHashCode.Exclude
+    private final long source;
+
     /**
      * Constructs an Employee instance with the specified parameters.
      *
@@ -26,9 +34,23 @@ public class Employee extends Person {
      * @param salary    the salary of the employee
      * @param managerId the unique identifier of the manager that the employee reports to
      */
-    public Employee(String id, String name, Double salary, String managerId) {
+    public Employee(String id, String name, double salary, String managerId) {
+        this(id, name, salary, managerId, LineSpan.NONE);
+    }
+
+    /**
+     * Constructs an Employee instance that remembers the input line it was read from.
+     *
+     * @param id        the unique identifier for the employee
+     * @param name      the name of the employee
+     * @param salary    the salary of the employee
+     * @param managerId the unique identifier of the manager that the employee reports to
+     * @param source    the {@link LineSpan} of the input line, or {@link LineSpan#NONE}
+     */
+    public Employee(String id, String name, double salary, String managerId, long source) {
         super(id, name, salary);
         this.managerId = managerId;
+        this.source = source;
     }
 
     @Override
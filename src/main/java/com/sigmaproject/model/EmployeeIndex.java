@@ -0,0 +1,100 @@
+package com.sigmaproject.model;
+
+import com.sigmaproject.utils.IdTable;
+import com.sigmaproject.utils.LineSpan;
+
+/**
+ * Index of accepted employees by their ID, with the employees kept in columns.
+ * <p>
+ * Every accepted employee is appended as a row of an {@link EmployeeStore}, and an
+ * {@link IdTable} maps its ID to the position of the row, so no {@link Employee} object
+ * is created while the input is read. An ID that was accepted before is rejected. The
+ * rows can be handed over with {@link #releaseRows()}, after which the index only
+ * remembers which IDs were seen.
+ * </p>
+ */
+public class EmployeeIndex {
+
+    private final IdTable ids = new IdTable();
+    private final EmployeeStore rows = new EmployeeStore();
+
+    /**
+     * Returns the number of accepted employees, including those whose rows were released.
+     *
+     * @return the number of employees
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Checks whether an employee with the given ID was accepted.
+     *
+     * @param id the ID
+     * @return {@code true} if an employee with the ID was accepted
+     */
+    public boolean containsKey(String id) {
+        return ids.indexOf(id) >= 0;
+    }
+
+    /**
+     * Accepts an employee unless an employee with the same ID was accepted before.
+     *
+     * @param id        the employee ID
+     * @param name      the employee name
+     * @param salary    the employee salary
+     * @param managerId the manager ID
+     * @param source    the {@link LineSpan} of the input line, or {@link LineSpan#NONE}
+     * @return {@code true} if the employee was accepted, {@code false} for a duplicate ID
+     */
+    public boolean add(String id, String name, double salary, String managerId, long source) {
+        if (ids.add(id) < 0) {
+            return false;
+        }
+        rows.addRow(id, name, salary, managerId, source);
+        return true;
+    }
+
+    /**
+     * Accepts a copy of a row of another store unless an employee with the same ID was
+     * accepted before.
+     *
+     * @param other the store to copy from
+     * @param row   position of the employee in the other store
+     * @return {@code true} if the employee was accepted, {@code false} for a duplicate ID
+     */
+    public boolean add(EmployeeStore other, int row) {
+        long key = other.getIdKey(row);
+        if ((key >= 0 ? ids.add(key) : ids.add(other.getId(row))) < 0) {
+            return false;
+        }
+        rows.addRow(other, row);
+        return true;
+    }
+
+    /**
+     * Returns the rows of the accepted employees in the order they were accepted.
+     *
+     * @return the rows, without those released before
+     */
+    public EmployeeStore getRows() {
+        return rows;
+    }
+
+    /**
+     * Empties the rows but keeps the IDs, so that employees handed over elsewhere
+     * are still recognized as duplicates. Rows accepted afterwards start again at
+     * the first position of {@link #getRows()}.
+     */
+    public void releaseRows() {
+        rows.clear();
+    }
+
+    /**
+     * Removes all employees and their IDs.
+     */
+    public void clear() {
+        ids.clear();
+        rows.clear();
+    }
+}
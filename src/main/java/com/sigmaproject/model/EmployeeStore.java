@@ -0,0 +1,527 @@
+package com.sigmaproject.model;
+
+import com.sigmaproject.utils.IdIndex;
+import com.sigmaproject.utils.LineSpan;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Compact column-oriented list of employees.
+ * <p>
+ * Instead of one object per employee the store keeps salaries in a {@code double[]},
+ * IDs and manager IDs in {@code long[]} key columns and names in a shared byte arena.
+ * IDs that are canonical non-negative numbers are stored as their value; any other ID
+ * is stored in the arena and referenced from the key column with a negative value.
+ * Rows are appended from their values or copied from another store with {@code addRow},
+ * and {@link Employee} objects are created only as short-lived views by {@link #get(int)}.
+ * The {@link LineSpan} column of source lines is allocated only once an employee with
+ * a source span is added.
+ * </p>
+ */
+public class EmployeeStore extends AbstractList<Employee> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int INITIAL_ARENA_CAPACITY = 128;
+
+    private int size;
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] managerIds = new long[INITIAL_CAPACITY];
+    private int[] names = new int[INITIAL_CAPACITY];
+    private double[] salaries = new double[INITIAL_CAPACITY];
+
+    /**
+     * Source spans of the rows, or {@code null} while no row has one.
+     */
+    private long[] sources;
+
+    /**
+     * Strings stored as a four byte length followed by the UTF-8 bytes.
+     */
+    private byte[] arena = new byte[INITIAL_ARENA_CAPACITY];
+    private int arenaSize;
+
+    private final byte[] digits = new byte[IdIndex.MAX_NUMERIC_ID_DIGITS];
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a view of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @return a new {@link Employee} holding the values of the row
+     */
+    @Override
+    public Employee get(int index) {
+        checkIndex(index);
+        return new Employee(getId(index), getName(index), salaries[index], getManagerId(index), getSource(index));
+    }
+
+    @Override
+    public Employee set(int index, Employee employee) {
+        Employee previous = get(index);
+        store(index, employee);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Employee employee) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ensureCapacity(size + 1);
+        int moved = size - index;
+        if (moved > 0) {
+            System.arraycopy(ids, index, ids, index + 1, moved);
+            System.arraycopy(managerIds, index, managerIds, index + 1, moved);
+            System.arraycopy(names, index, names, index + 1, moved);
+            System.arraycopy(salaries, index, salaries, index + 1, moved);
+            if (sources != null) {
+                System.arraycopy(sources, index, sources, index + 1, moved);
+            }
+        }
+        size++;
+        modCount++;
+        store(index, employee);
+    }
+
+    @Override
+    public Employee remove(int index) {
+        Employee previous = get(index);
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(ids, index + 1, ids, index, moved);
+            System.arraycopy(managerIds, index + 1, managerIds, index, moved);
+            System.arraycopy(names, index + 1, names, index, moved);
+            System.arraycopy(salaries, index + 1, salaries, index, moved);
+            if (sources != null) {
+                System.arraycopy(sources, index + 1, sources, index, moved);
+            }
+        }
+        size--;
+        modCount++;
+        if (size == 0) {
+            arenaSize = 0;
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        arenaSize = 0;
+        modCount++;
+    }
+
+    /**
+     * Appends an employee from its values, without creating an {@link Employee}.
+     *
+     * @param id        the employee ID
+     * @param name      the employee name
+     * @param salary    the employee salary
+     * @param managerId the manager ID
+     * @param source    the {@link LineSpan} of the input line, or {@link LineSpan#NONE}
+     */
+    public void addRow(String id, String name, double salary, String managerId, long source) {
+        ensureCapacity(size + 1);
+        int index = size;
+        ids[index] = toKey(id);
+        managerIds[index] = toKey(managerId);
+        names[index] = putArenaString(name);
+        salaries[index] = salary;
+        putSource(index, source);
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Appends a copy of a row of another store, without decoding its strings.
+     *
+     * @param other the store to copy from
+     * @param row   position of the employee in the other store
+     */
+    public void addRow(EmployeeStore other, int row) {
+        other.checkIndex(row);
+        ensureCapacity(size + 1);
+        int index = size;
+        ids[index] = copyKey(other, other.ids[row]);
+        managerIds[index] = copyKey(other, other.managerIds[row]);
+        names[index] = copyArenaString(other, other.names[row]);
+        salaries[index] = other.salaries[row];
+        putSource(index, other.getSource(row));
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Returns the ID of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @return the employee ID
+     */
+    public String getId(int index) {
+        checkIndex(index);
+        return keyToString(ids[index]);
+    }
+
+    /**
+     * Returns the key of the ID of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @return the value of the ID if it is a canonical number, a negative value otherwise
+     */
+    long getIdKey(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    /**
+     * Returns the name of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @return the employee name
+     */
+    public String getName(int index) {
+        checkIndex(index);
+        return arenaString(names[index]);
+    }
+
+    /**
+     * Returns the length of the UTF-8 encoded name of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @return the length of the name in bytes
+     */
+    public int getNameLength(int index) {
+        checkIndex(index);
+        return arenaLength(names[index]);
+    }
+
+    /**
+     * Copies the UTF-8 encoded name of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @param dest  the array to copy to, with room for {@link #getNameLength(int)} bytes
+     * @param pos   the position in the array to copy to
+     */
+    public void copyName(int index, byte[] dest, int pos) {
+        checkIndex(index);
+        int offset = names[index];
+        System.arraycopy(arena, offset + 4, dest, pos, arenaLength(offset));
+    }
+
+    /**
+     * Returns the salary of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @return the employee salary
+     */
+    public double getSalary(int index) {
+        checkIndex(index);
+        return salaries[index];
+    }
+
+    /**
+     * Returns the manager ID of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @return the manager ID
+     */
+    public String getManagerId(int index) {
+        checkIndex(index);
+        return keyToString(managerIds[index]);
+    }
+
+    /**
+     * Returns the source span of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @return the {@link LineSpan} of the input line, or {@link LineSpan#NONE}
+     */
+    public long getSource(int index) {
+        checkIndex(index);
+        return sources != null ? sources[index] : LineSpan.NONE;
+    }
+
+    /**
+     * Forgets the source spans of all rows, for rows whose input files are gone.
+     */
+    public void dropSources() {
+        sources = null;
+    }
+
+    /**
+     * Writes the UTF-8 encoded ID of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @param out   the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeId(int index, OutputStream out) throws IOException {
+        checkIndex(index);
+        writeKey(ids[index], out);
+    }
+
+    /**
+     * Writes the UTF-8 encoded name of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @param out   the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeName(int index, OutputStream out) throws IOException {
+        checkIndex(index);
+        writeArenaString(names[index], out);
+    }
+
+    /**
+     * Writes the UTF-8 encoded manager ID of the employee at the given position.
+     *
+     * @param index position of the employee
+     * @param out   the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeManagerId(int index, OutputStream out) throws IOException {
+        checkIndex(index);
+        writeKey(managerIds[index], out);
+    }
+
+    /**
+     * Writes the employee at the given position in a compact binary form that
+     * {@link #readRow(DataInput)} reads back.
+     *
+     * @param index position of the employee
+     * @param out   the output to write to
+     * @throws IOException if writing fails
+     */
+    public void writeRow(int index, DataOutput out) throws IOException {
+        checkIndex(index);
+        writeBinaryKey(ids[index], out);
+        writeBinaryKey(managerIds[index], out);
+        writeBinaryString(names[index], out);
+        out.writeDouble(salaries[index]);
+        out.writeLong(getSource(index));
+    }
+
+    /**
+     * Reads an employee written by {@link #writeRow(int, DataOutput)} and appends it.
+     *
+     * @param in the input to read from
+     * @throws IOException if reading fails
+     */
+    public void readRow(DataInput in) throws IOException {
+        ensureCapacity(size + 1);
+        int index = size;
+        ids[index] = readBinaryKey(in);
+        managerIds[index] = readBinaryKey(in);
+        names[index] = readBinaryString(in);
+        salaries[index] = in.readDouble();
+        putSource(index, in.readLong());
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Reorders the rows so that the row at position {@code k} becomes the row
+     * that was at position {@code order[k]}.
+     *
+     * @param order a permutation of the positions {@code 0..size-1}
+     */
+    public void permute(int[] order) {
+        if (order.length != size) {
+            throw new IllegalArgumentException("Permutation size " + order.length + " does not match " + size);
+        }
+        long[] newIds = new long[ids.length];
+        long[] newManagerIds = new long[managerIds.length];
+        int[] newNames = new int[names.length];
+        double[] newSalaries = new double[salaries.length];
+        long[] newSources = sources != null ? new long[sources.length] : null;
+        for (int k = 0; k < size; k++) {
+            int from = order[k];
+            newIds[k] = ids[from];
+            newManagerIds[k] = managerIds[from];
+            newNames[k] = names[from];
+            newSalaries[k] = salaries[from];
+            if (newSources != null) {
+                newSources[k] = sources[from];
+            }
+        }
+        ids = newIds;
+        managerIds = newManagerIds;
+        names = newNames;
+        salaries = newSalaries;
+        sources = newSources;
+        modCount++;
+    }
+
+    private void store(int index, Employee employee) {
+        ids[index] = toKey(employee.getId());
+        managerIds[index] = toKey(employee.getManagerId());
+        names[index] = putArenaString(employee.getName());
+        salaries[index] = employee.getSalary();
+        putSource(index, employee.getSource());
+    }
+
+    private void putSource(int index, long source) {
+        if (source != LineSpan.NONE && sources == null) {
+            sources = new long[ids.length];
+            Arrays.fill(sources, LineSpan.NONE);
+        }
+        if (sources != null) {
+            sources[index] = source;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, newCapacity);
+            managerIds = Arrays.copyOf(managerIds, newCapacity);
+            names = Arrays.copyOf(names, newCapacity);
+            salaries = Arrays.copyOf(salaries, newCapacity);
+            if (sources != null) {
+                int oldCapacity = sources.length;
+                sources = Arrays.copyOf(sources, newCapacity);
+                Arrays.fill(sources, oldCapacity, newCapacity, LineSpan.NONE);
+            }
+        }
+    }
+
+    /**
+     * Converts an ID to its key: the number itself for canonical numeric IDs,
+     * otherwise a negative reference to the ID stored in the arena.
+     */
+    private long toKey(String id) {
+        long key = IdIndex.numericKey(id);
+        return key != IdIndex.NOT_NUMERIC ? key : ~(long) putArenaString(id);
+    }
+
+    private long copyKey(EmployeeStore other, long key) {
+        return key >= 0 ? key : ~(long) copyArenaString(other, (int) ~key);
+    }
+
+    private String keyToString(long key) {
+        return key >= 0 ? Long.toString(key) : arenaString((int) ~key);
+    }
+
+    private void writeKey(long key, OutputStream out) throws IOException {
+        if (key < 0) {
+            writeArenaString((int) ~key, out);
+            return;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + key % 10);
+            key /= 10;
+        } while (key > 0);
+        out.write(digits, pos, digits.length - pos);
+    }
+
+    /**
+     * Writes a key as a long, followed by the arena string for keys of non-numeric IDs.
+     */
+    private void writeBinaryKey(long key, DataOutput out) throws IOException {
+        out.writeLong(key >= 0 ? key : IdIndex.NOT_NUMERIC);
+        if (key < 0) {
+            writeBinaryString((int) ~key, out);
+        }
+    }
+
+    private long readBinaryKey(DataInput in) throws IOException {
+        long key = in.readLong();
+        return key >= 0 ? key : ~(long) readBinaryString(in);
+    }
+
+    private void writeBinaryString(int offset, DataOutput out) throws IOException {
+        int length = arenaLength(offset);
+        out.writeInt(length);
+        out.write(arena, offset + 4, length);
+    }
+
+    private int readBinaryString(DataInput in) throws IOException {
+        int length = in.readInt();
+        int offset = arenaSize;
+        ensureArenaCapacity(offset + 4 + length);
+        putArenaLength(offset, length);
+        in.readFully(arena, offset + 4, length);
+        arenaSize = offset + 4 + length;
+        return offset;
+    }
+
+    private int putArenaString(String s) {
+        int length = s.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = s.charAt(i) < 0x80;
+        }
+        byte[] encoded = ascii ? null : s.getBytes(StandardCharsets.UTF_8);
+        int byteLength = ascii ? length : encoded.length;
+
+        int offset = arenaSize;
+        ensureArenaCapacity(offset + 4 + byteLength);
+        putArenaLength(offset, byteLength);
+        if (ascii) {
+            for (int i = 0; i < length; i++) {
+                arena[offset + 4 + i] = (byte) s.charAt(i);
+            }
+        } else {
+            System.arraycopy(encoded, 0, arena, offset + 4, byteLength);
+        }
+        arenaSize = offset + 4 + byteLength;
+        return offset;
+    }
+
+    private int copyArenaString(EmployeeStore other, int otherOffset) {
+        int length = other.arenaLength(otherOffset);
+        int offset = arenaSize;
+        ensureArenaCapacity(offset + 4 + length);
+        System.arraycopy(other.arena, otherOffset, arena, offset, 4 + length);
+        arenaSize = offset + 4 + length;
+        return offset;
+    }
+
+    private void putArenaLength(int offset, int length) {
+        arena[offset] = (byte) (length >>> 24);
+        arena[offset + 1] = (byte) (length >>> 16);
+        arena[offset + 2] = (byte) (length >>> 8);
+        arena[offset + 3] = (byte) length;
+    }
+
+    private int arenaLength(int offset) {
+        return (arena[offset] & 0xff) << 24 | (arena[offset + 1] & 0xff) << 16
+                | (arena[offset + 2] & 0xff) << 8 | (arena[offset + 3] & 0xff);
+    }
+
+    private String arenaString(int offset) {
+        return new String(arena, offset + 4, arenaLength(offset), StandardCharsets.UTF_8);
+    }
+
+    private void writeArenaString(int offset, OutputStream out) throws IOException {
+        out.write(arena, offset + 4, arenaLength(offset));
+    }
+
+    private void ensureArenaCapacity(int capacity) {
+        if (capacity < 0 || capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Employee store arena exceeds 2 GB");
+        }
+        if (capacity > arena.length) {
+            long newCapacity = Math.max(capacity, (long) arena.length * 2);
+            arena = Arrays.copyOf(arena, (int) Math.min(newCapacity, Integer.MAX_VALUE - 8L));
+        }
+    }
+}
@@ -26,7 +26,7 @@ public class Manager extends Person {
      * @param salary     the salary of the manager
      * @param department the department that the manager oversees
      */
-    public Manager(String id, String name, Double salary, String department) {
+    public Manager(String id, String name, double salary, String department) {
         super(id, name, salary);
         this.department = department;
     }
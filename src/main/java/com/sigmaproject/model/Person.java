@@ -1,9 +1,8 @@
 package com.sigmaproject.model;
 
+import com.sigmaproject.utils.SalaryFormat;
 import lombok.Data;
 
-import java.text.DecimalFormat;
-
 
 /**
  * Abstract class representing a person.
@@ -28,13 +27,13 @@ public abstract class Person {
     /**
      * The salary of the person.
      */
-    private final Double salary;
+    private final double salary;
 
     /** Default constructor. */
     public Person() {
         this.id = null;
         this.name = null;
-        this.salary = null;
+        this.salary = 0.0;
     }
 
     /**
@@ -44,7 +43,7 @@ public abstract class Person {
      * @param name   the name of the person
      * @param salary the salary of the person
      */
-    public Person(String id, String name, Double salary) {
+    public Person(String id, String name, double salary) {
         this.id = id;
         this.name = name;
         this.salary = salary;
@@ -58,20 +57,16 @@ public abstract class Person {
      * @param value the {@code double} value to be formatted
      * @return a string representation of the formatted value
      *         without unnecessary zeros after the decimal point
+     * @see SalaryFormat
      */
-    private String formatDouble(double value) {
-        DecimalFormat df = new DecimalFormat("#.##");
-        String result = df.format(value);
-
-        if (result.endsWith(".00")) {
-            result = result.substring(0, result.length() - 3);
-        }
-
-        return result;
+    public static String formatDouble(double value) {
+        return SalaryFormat.format(value);
     }
 
     @Override
     public String toString() {
-        return id + "," + name + "," + formatDouble(salary != null ? salary : 0.0) ;
+        StringBuilder sb = new StringBuilder(64).append(id).append(',').append(name).append(',');
+        SalaryFormat.appendTo(sb, salary);
+        return sb.toString();
     }
-}
\ No newline at end of file
+}
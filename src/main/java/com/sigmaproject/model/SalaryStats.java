@@ -0,0 +1,90 @@
+package com.sigmaproject.model;
+
+import com.sigmaproject.utils.Money;
+import lombok.Getter;
+
+/**
+ * Running salary statistics of a department.
+ * <p>
+ * Count, sum, minimum and maximum are kept as primitive cents and updated one salary
+ * at a time, so statistics need neither a sort nor boxed values. Accumulators of parts
+ * of a department can be combined with {@link #merge(SalaryStats)}. As long as every
+ * salary holds a whole number of cents and the sum does not overflow the statistics are
+ * exact; otherwise {@link #isExact()} turns {@code false} and the caller has to compute
+ * them from the salaries themselves.
+ * </p>
+ */
+@Getter
+public class SalaryStats {
+
+    /**
+     * The number of counted salaries.
+     */
+    private long count;
+
+    /**
+     * The sum of the counted salaries in cents.
+     */
+    private long sumCents;
+
+    /**
+     * The lowest counted salary in cents, {@link Long#MAX_VALUE} while nothing is counted.
+     */
+    private long minCents = Long.MAX_VALUE;
+
+    /**
+     * The highest counted salary in cents, {@link Long#MIN_VALUE} while nothing is counted.
+     */
+    private long maxCents = Long.MIN_VALUE;
+
+    /**
+     * Whether all counted salaries were whole cents and their sum fits a {@code long}.
+     */
+    private boolean exact = true;
+
+    /**
+     * Counts a salary. Salaries that are not positive, including a missing salary
+     * stored as {@link Double#NaN}, are ignored.
+     *
+     * @param salary the salary
+     */
+    public void add(double salary) {
+        if (!(salary > 0)) {
+            return;
+        }
+        long cents = Money.toCents(salary);
+        if (cents == Money.INEXACT || sumCents > Long.MAX_VALUE - cents) {
+            exact = false;
+            return;
+        }
+        count++;
+        sumCents += cents;
+        minCents = Math.min(minCents, cents);
+        maxCents = Math.max(maxCents, cents);
+    }
+
+    /**
+     * Adds the salaries counted by another accumulator.
+     *
+     * @param other the accumulator to merge
+     */
+    public void merge(SalaryStats other) {
+        if (!other.exact || sumCents > Long.MAX_VALUE - other.sumCents) {
+            exact = false;
+            return;
+        }
+        count += other.count;
+        sumCents += other.sumCents;
+        minCents = Math.min(minCents, other.minCents);
+        maxCents = Math.max(maxCents, other.maxCents);
+    }
+
+    /**
+     * Returns the average salary rounded up to whole cents.
+     *
+     * @return the average in cents; undefined while nothing is counted
+     */
+    public long averageCents() {
+        return Money.ceilDiv(sumCents, count);
+    }
+}
@@ -0,0 +1,73 @@
+package com.sigmaproject.model;
+
+import com.sigmaproject.utils.QuantileSketch;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+
+/**
+ * Employees of a department that were moved out of memory into sorted run files.
+ * <p>
+ * Every spilled employee is written with its ordinal, its position in read order, which
+ * breaks ties when the runs are merged. Unless {@link #getMemoryOrdinals() memory ordinals}
+ * are set, the employees still in memory are numbered on from the spilled ones.
+ * </p>
+ * <p>
+ * Besides the run files, in the order they were written, the salaries of the spilled
+ * employees are summarized when they are spilled, so that statistics never have to
+ * read the runs again: a {@link DoubleSummaryStatistics} for salaries that are not
+ * whole cents and a {@link QuantileSketch} for percentiles.
+ * </p>
+ */
+@Getter
+public class SpilledRuns {
+
+    /**
+     * The run files, oldest first.
+     */
+    private final List<Path> files = new ArrayList<>();
+
+    /**
+     * Summary of the spilled salaries.
+     */
+    private final DoubleSummaryStatistics salaries = new DoubleSummaryStatistics();
+
+    /**
+     * Percentile sketch of the spilled salaries.
+     */
+    private final QuantileSketch sketch = new QuantileSketch(QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+
+    /**
+     * Number of employees written to the run files.
+     */
+    private long rowCount;
+
+    /**
+     * Ordinals of the employees still in memory, by row, or {@code null} if they follow
+     * the spilled employees in read order.
+     */
+    @Setter
+    private long[] memoryOrdinals;
+
+    /**
+     * Records a run file and the salaries of the employees written to it.
+     *
+     * @param file the run file
+     * @param run  the employees written to the file
+     */
+    public void add(Path file, EmployeeStore run) {
+        files.add(file);
+        rowCount += run.size();
+        for (int i = 0; i < run.size(); i++) {
+            double salary = run.getSalary(i);
+            if (salary > 0) {
+                salaries.accept(salary);
+                sketch.add(salary);
+            }
+        }
+    }
+}
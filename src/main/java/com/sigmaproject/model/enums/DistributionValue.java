@@ -0,0 +1,33 @@
+package com.sigmaproject.model.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum representing the possible department size distributions of generated datasets.
+ * <p>
+ * This enum provides two options:
+ * <ul>
+ *     <li><b>UNIFORM</b>: Every department is equally likely for an employee.</li>
+ *     <li><b>ZIPF</b>: The department of rank k gets a share proportional to 1 / k^s.</li>
+ * </ul>
+ * </p>
+ */
+@Getter
+public enum DistributionValue {
+    UNIFORM("uniform"),
+    ZIPF("zipf");
+
+    /**
+     * The string representation of the distribution value
+     */
+    private final String value;
+
+    /**
+     * Constructs a DistributionValue enum with the specified string representation.
+     *
+     * @param value the string representation of the distribution value
+     */
+    DistributionValue(String value) {
+        this.value = value;
+    }
+}
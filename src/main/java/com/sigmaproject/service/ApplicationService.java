@@ -1,14 +1,18 @@
 package com.sigmaproject.service;
 
 import com.sigmaproject.model.Department;
-import com.sigmaproject.model.Employee;
+import com.sigmaproject.model.EmployeeIndex;
 import com.sigmaproject.model.Manager;
+import com.sigmaproject.utils.IdIndex;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static com.sigmaproject.utils.Constant.*;
+
 /**
  * The ApplicationService class is responsible for executing the main logic
  * of the application. It orchestrates the reading of files, processing of
@@ -20,43 +24,135 @@ public class ApplicationService {
     /**
      * Runs the main logic of the application.
      *
-     * <p>This method performs the following tasks:</p>
+     * <p>With {@code --delta} the delta files are applied to the snapshot by
+     * {@link DeltaService#applyDelta} instead. Otherwise this method performs the following tasks:</p>
      * <ol>
      *     <li>Reads manager and employee data from files.</li>
      *     <li>Creates departments based on the managers.</li>
-     *     <li>Distributes employees to their respective managers.</li>
+     *     <li>Distributes employees to their respective managers, or, with {@code --stream-join},
+     *     joins them to their departments while the files are read.</li>
      *     <li>Removes any empty departments.</li>
+     *     <li>With {@code --snapshot}, persists the departments for later {@code --delta} runs.</li>
      *     <li>Sorts employees within departments.</li>
      *     <li>Writes output files for the departments.</li>
      *     <li>Logs any errors encountered during processing.</li>
      *     <li>If statistics are requested, generates and writes statistics.</li>
      * </ol>
+     * <p>With {@code --metrics} every stage is measured by the {@link RunMetrics} of the run,
+     * and the report is written when the run ends, also if it fails.</p>
      *
      * @param params the command line arguments and parameters used for
      *               configuration and control of the application logic
      */
     public static void runApplication(CommandLineArgsService params) {
+        RunMetrics metrics = params.getMetrics();
+        try {
+            run(params, metrics);
+        } finally {
+            metrics.writeReport();
+        }
+    }
+
+    /**
+     * Runs the stages of the application, recording them in the run metrics.
+     *
+     * @param params  command line parameters
+     * @param metrics the metrics of the run
+     */
+    private static void run(CommandLineArgsService params, RunMetrics metrics) {
+
+        if (params.isDelta()) {
+            DeltaService.applyDelta(params);
+            return;
+        }
 
-        Map<String, Manager> allManagersById = new HashMap<>();
-        Map<String, Employee> allEmployeesById = new HashMap<>();
+        IdIndex<Manager> allManagersById = new IdIndex<>();
+        EmployeeIndex allEmployeesById = new EmployeeIndex();
         List<String> errorLines = new ArrayList<>();
 
-        FileService.readFiles(allManagersById, allEmployeesById, errorLines);
+        List<Path> inputFiles;
+        Map<String, Department> departments = null;
+        long employees;
 
-        Map<String, Department> departments = DepartmentService.createDepartments(allManagersById, errorLines);
+        try {
+            metrics.begin(STAGE_READ);
+            if (params.isStreamJoin()) {
+                departments = new HashMap<>();
+                inputFiles = FileService.readFilesStreaming(allManagersById, departments, errorLines, params);
+                employees = countEmployees(departments);
+                metrics.bytesRead(inputFiles);
+                // Duplicate managers and orphans are rejected by the join, which runs while reading.
+                metrics.records(departments.size() + employees + errorLines.size(), departments.size() + employees);
+            } else {
+                inputFiles = FileService.readFiles(allManagersById, allEmployeesById, errorLines, params);
+                metrics.bytesRead(inputFiles);
+                metrics.records(allManagersById.size() + allEmployeesById.size() + errorLines.size(),
+                        allManagersById.size() + allEmployeesById.size());
+                metrics.errors(REASON_REJECTED_LINE, errorLines.size());
 
-        EmployeeService.distributeEmployees(allEmployeesById, allManagersById, departments, errorLines);
+                int errors = errorLines.size();
+                metrics.begin(STAGE_CREATE_DEPARTMENTS);
+                departments = DepartmentService.createDepartments(allManagersById, errorLines, params);
+                metrics.records(allManagersById.size(), departments.size());
+                metrics.errors(REASON_DUPLICATE_MANAGER, errorLines.size() - errors);
 
-        DepartmentService.removeEmptyDepartments(departments);
+                errors = errorLines.size();
+                metrics.begin(STAGE_DISTRIBUTE_EMPLOYEES);
+                EmployeeService.distributeEmployees(allEmployeesById, allManagersById, departments, errorLines, params);
+                employees = allEmployeesById.size() - (errorLines.size() - errors);
+                metrics.records(allEmployeesById.size(), employees);
+                metrics.errors(REASON_ORPHAN_EMPLOYEE, errorLines.size() - errors);
+                // The departments now hold the employees in their compact stores.
+                allEmployeesById.clear();
+            }
 
-        EmployeeService.sortEmployees(departments, params);
+            metrics.begin(STAGE_REMOVE_EMPTY_DEPARTMENTS);
+            int allDepartments = departments.size();
+            DepartmentService.removeEmptyDepartments(departments);
+            metrics.records(allDepartments, departments.size());
 
-        FileService.writeOutputFiles(departments);
+            if (params.isSnapshot()) {
+                metrics.begin(STAGE_SNAPSHOT);
+                DeltaService.writeSnapshot(allManagersById.values(), departments, params);
+                metrics.records(departments.size(), departments.size());
+            }
 
-        FileService.writeErrorLog(errorLines);
+            metrics.begin(STAGE_SORT);
+            EmployeeService.sortEmployees(departments, params);
+            metrics.records(employees, employees);
 
-        if (params.isStat()) {
-            StatisticsService.writeStatistics(departments, params);
+            metrics.begin(STAGE_WRITE_OUTPUT);
+            int written = FileService.writeOutputFiles(departments, inputFiles, params);
+            metrics.records(departments.size(), written);
+
+            metrics.begin(STAGE_WRITE_ERROR_LOG);
+            FileService.writeErrorLog(errorLines, params);
+            metrics.records(errorLines.size(), errorLines.size());
+
+            if (params.isStat()) {
+                metrics.begin(STAGE_STATISTICS);
+                StatisticsService.writeStatistics(departments, params);
+                metrics.records(departments.size(), departments.size());
+            }
+            metrics.end();
+        } finally {
+            if (departments != null) {
+                SpillService.deleteRuns(departments.values());
+            }
+        }
+    }
+
+    /**
+     * Counts the employees of the departments, including spilled ones.
+     *
+     * @param departments map of departments
+     * @return the number of employees
+     */
+    private static long countEmployees(Map<String, Department> departments) {
+        long employees = 0;
+        for (Department dept : departments.values()) {
+            employees += dept.getEmployees().size() + dept.getSpilledRuns().getRowCount();
         }
+        return employees;
     }
 }
@@ -4,8 +4,12 @@ import com.sigmaproject.exception.CustomIllArgException;
 import com.sigmaproject.model.enums.OrderValue;
 import com.sigmaproject.model.enums.OutputValue;
 import com.sigmaproject.model.enums.SortValue;
+import lombok.AccessLevel;
 import lombok.Getter;
 
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,6 +31,45 @@ public class CommandLineArgsService {
     private String order = null;
     private String output = null;
     private String path = null;
+    private int threads = 1;
+    private int ioThreads = 1;
+    private boolean mmap = false;
+    private boolean passthrough = false;
+    private boolean percentiles = false;
+    private boolean parallelSort = false;
+    private int limit = 0;
+    private int spillThreshold = 0;
+    private boolean streamJoin = false;
+    private boolean parseCache = false;
+    private boolean invalidateCache = false;
+    private boolean snapshot = false;
+    private boolean delta = false;
+    private int pendingLimit = DEFAULT_PENDING_LIMIT;
+    private RunMetrics metrics = RunMetrics.DISABLED;
+    private Path inputDir;
+    private Path outputDir;
+    @Getter(AccessLevel.PACKAGE)
+    private final WorkerPools pools;
+
+    @Getter(AccessLevel.NONE)
+    private final Path workingDir;
+
+    @Getter(AccessLevel.NONE)
+    private String threadsValue = null;
+    @Getter(AccessLevel.NONE)
+    private String ioThreadsValue = null;
+    @Getter(AccessLevel.NONE)
+    private String limitValue = null;
+    @Getter(AccessLevel.NONE)
+    private String spillThresholdValue = null;
+    @Getter(AccessLevel.NONE)
+    private String pendingLimitValue = null;
+    @Getter(AccessLevel.NONE)
+    private String metricsValue = null;
+    @Getter(AccessLevel.NONE)
+    private String inputDirValue = DEFAULT_INPUT_DIR;
+    @Getter(AccessLevel.NONE)
+    private String outputDirValue = DEFAULT_OUTPUT_DIR;
 
     /**
      * Constructs a CommandLineArgsService with the provided command-line arguments.
@@ -35,16 +78,144 @@ public class CommandLineArgsService {
      * @throws CustomIllArgException if the arguments are invalid
      */
     public CommandLineArgsService(String[] args) throws CustomIllArgException {
+        this(args, Paths.get(""), WorkerPools.PER_STAGE);
+    }
+
+    /**
+     * Constructs a CommandLineArgsService for a job of the daemon.
+     *
+     * @param args       the command-line arguments to parse
+     * @param workingDir the directory relative paths in the arguments are resolved against
+     * @param pools      the worker pools of the parallel stages
+     * @throws CustomIllArgException if the arguments are invalid
+     */
+    CommandLineArgsService(String[] args, Path workingDir, WorkerPools pools) throws CustomIllArgException {
+        this.workingDir = workingDir;
+        this.pools = pools;
         parseArgs(args);
         validate();
     }
 
+    /**
+     * Resolves a path given in the arguments against the working directory.
+     *
+     * @param path the path
+     * @return the resolved path
+     */
+    Path resolve(String path) {
+        return workingDir.resolve(path);
+    }
+
     /**
      * Parses the command-line arguments and populates the fields of the class.
      *
      * @param args the command-line arguments to parse
      */
     private void parseArgs(String[] args) {
+        Map<String, String> params = parseOptions(args);
+
+        if (params.containsKey(SORT)) {
+            sortBy = params.get(SORT);
+        } else if (params.containsKey(S)) {
+            sortBy = params.get(S);
+        }
+
+        if (params.containsKey(ORDER)) {
+            order = params.get(ORDER);
+        }
+
+        if (params.containsKey(STAT)) {
+            stat = true;
+        }
+
+        if (params.containsKey(OUTPUT)) {
+            output = params.get(OUTPUT);
+        } else if (params.containsKey(O)) {
+            output = params.get(O);
+        }
+
+        if (params.containsKey(PATH)) {
+            path = params.get(PATH);
+        }
+
+        if (params.containsKey(MMAP)) {
+            mmap = true;
+        }
+
+        if (params.containsKey(PASSTHROUGH)) {
+            passthrough = true;
+        }
+
+        if (params.containsKey(PERCENTILES)) {
+            percentiles = true;
+        }
+
+        if (params.containsKey(PARALLEL_SORT)) {
+            parallelSort = true;
+        }
+
+        if (params.containsKey(LIMIT)) {
+            limitValue = params.get(LIMIT);
+        }
+
+        if (params.containsKey(SPILL_THRESHOLD)) {
+            spillThresholdValue = params.get(SPILL_THRESHOLD);
+        }
+
+        if (params.containsKey(STREAM_JOIN)) {
+            streamJoin = true;
+        }
+
+        if (params.containsKey(PARSE_CACHE)) {
+            parseCache = true;
+        }
+
+        if (params.containsKey(INVALIDATE_CACHE)) {
+            invalidateCache = true;
+        }
+
+        if (params.containsKey(SNAPSHOT)) {
+            snapshot = true;
+        }
+
+        if (params.containsKey(DELTA)) {
+            delta = true;
+        }
+
+        if (params.containsKey(PENDING_LIMIT)) {
+            pendingLimitValue = params.get(PENDING_LIMIT);
+        }
+
+        if (params.containsKey(THREADS)) {
+            threadsValue = params.get(THREADS);
+        }
+
+        if (params.containsKey(IO_THREADS)) {
+            ioThreadsValue = params.get(IO_THREADS);
+        }
+
+        if (params.containsKey(METRICS)) {
+            metricsValue = params.get(METRICS);
+        }
+
+        if (params.containsKey(INPUT_DIR)) {
+            inputDirValue = params.get(INPUT_DIR);
+        }
+
+        if (params.containsKey(OUTPUT_DIR)) {
+            outputDirValue = params.get(OUTPUT_DIR);
+        }
+    }
+
+    /**
+     * Splits command-line arguments of the form {@code --key=value}, {@code -key=value},
+     * {@code --flag} or {@code -flag} into a map of lower-case keys to values; flags map to
+     * {@code "true"}.
+     *
+     * @param args the command-line arguments
+     * @return the options by key
+     */
+    static Map<String, String> parseOptions(String[] args) {
         Map<String, String> params = new HashMap<>();
 
         for (String arg : args) {
@@ -70,40 +241,143 @@ public class CommandLineArgsService {
                 }
             }
         }
+        return params;
+    }
 
-        if (params.containsKey(SORT)) {
-            sortBy = params.get(SORT);
-        } else if (params.containsKey(S)) {
-            sortBy = params.get(S);
+    /**
+     * Validates the parsed command-line arguments for correctness.
+     *
+     * @throws CustomIllArgException if any of the arguments are invalid
+     */
+    private void validate() {
+        validateSort();
+        validateStatistic();
+        validateThreads();
+        validateJoin();
+        validateCache();
+        validateSnapshot();
+        validateMetrics();
+        validateDirectories();
+    }
+
+    /**
+     * Validates the input and output directories and resolves them against the working directory.
+     *
+     * @throws CustomIllArgException if a directory is empty or not a valid path
+     */
+    private void validateDirectories() {
+        inputDir = parseDirectory(inputDirValue, INCORRECT_INPUT_DIR_PARAM);
+        outputDir = parseDirectory(outputDirValue, INCORRECT_OUTPUT_DIR_PARAM);
+    }
+
+    private Path parseDirectory(String value, String errorMessage) {
+        if (value.isEmpty()) {
+            throw new CustomIllArgException(errorMessage + value);
         }
+        try {
+            return resolve(value);
+        } catch (InvalidPathException e) {
+            throw new CustomIllArgException(errorMessage + value);
+        }
+    }
 
-        if (params.containsKey(ORDER)) {
-            order = params.get(ORDER);
+    /**
+     * Validates the metrics report path and enables the metrics if it is given.
+     *
+     * @throws CustomIllArgException if the path is empty or not a valid path
+     */
+    private void validateMetrics() {
+        if (metricsValue == null) {
+            return;
+        }
+        if (metricsValue.isEmpty()) {
+            throw new CustomIllArgException(INCORRECT_METRICS_PARAM + metricsValue);
+        }
+        try {
+            metrics = new RunMetrics(resolve(metricsValue));
+        } catch (InvalidPathException e) {
+            throw new CustomIllArgException(INCORRECT_METRICS_PARAM + metricsValue);
         }
+    }
 
-        if (params.containsKey(STAT)) {
-            stat = true;
+    /**
+     * Validates the parse cache settings.
+     *
+     * @throws CustomIllArgException if the cache is invalidated without being used, or is
+     * combined with the streaming join, which does not read through it
+     */
+    private void validateCache() {
+        if (invalidateCache && !parseCache) {
+            throw new CustomIllArgException(INVALIDATE_CACHE_ERROR_MESSAGE);
+        }
+        if (parseCache && streamJoin) {
+            throw new CustomIllArgException(PARSE_CACHE_ERROR_MESSAGE);
         }
+    }
 
-        if (params.containsKey(OUTPUT)) {
-            output = params.get(OUTPUT);
-        } else if (params.containsKey(O)) {
-            output = params.get(O);
+    /**
+     * Validates the snapshot and delta settings.
+     *
+     * @throws CustomIllArgException if a snapshot is combined with spilling, which does not
+     * keep the departments in memory, or the delta mode is combined with options of a full run
+     */
+    private void validateSnapshot() {
+        if (snapshot && spillThreshold > 0) {
+            throw new CustomIllArgException(SNAPSHOT_ERROR_MESSAGE);
+        }
+        if (delta && (snapshot || streamJoin || parseCache || spillThreshold > 0)) {
+            throw new CustomIllArgException(DELTA_ERROR_MESSAGE);
         }
+    }
 
-        if (params.containsKey(PATH)) {
-            path = params.get(PATH);
+    /**
+     * Validates the streaming join settings.
+     *
+     * @throws CustomIllArgException if the pending limit is given without the streaming join
+     * or is not a positive integer
+     */
+    private void validateJoin() {
+        if (pendingLimitValue != null) {
+            if (!streamJoin) {
+                throw new CustomIllArgException(PENDING_LIMIT_ERROR_MESSAGE);
+            }
+            pendingLimit = parsePositiveInt(pendingLimitValue, INCORRECT_PENDING_LIMIT_PARAM);
         }
     }
 
     /**
-     * Validates the parsed command-line arguments for correctness.
+     * Validates the numbers of worker and I/O threads.
      *
-     * @throws CustomIllArgException if any of the arguments are invalid
+     * @throws CustomIllArgException if a number of threads is not a positive integer
      */
-    private void validate() {
-        validateSort();
-        validateStatistic();
+    private void validateThreads() {
+        if (threadsValue != null) {
+            threads = parsePositiveInt(threadsValue, INCORRECT_THREADS_PARAM);
+        }
+        if (ioThreadsValue != null) {
+            ioThreads = parsePositiveInt(ioThreadsValue, INCORRECT_IO_THREADS_PARAM);
+        }
+    }
+
+    /**
+     * Parses the value of a parameter that must be a positive integer.
+     *
+     * @param value        the parameter value
+     * @param errorMessage the error message for an incorrect value
+     * @return the parsed value
+     * @throws CustomIllArgException if the value is not a positive integer
+     */
+    static int parsePositiveInt(String value, String errorMessage) {
+        int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new CustomIllArgException(errorMessage + value);
+        }
+        if (result < 1) {
+            throw new CustomIllArgException(errorMessage + value);
+        }
+        return result;
     }
 
     /**
@@ -119,6 +393,9 @@ public class CommandLineArgsService {
             if (path != null) {
                 throw new CustomIllArgException(STAT_ERROR_MESSAGE);
             }
+            if (percentiles) {
+                throw new CustomIllArgException(PERCENTILES_ERROR_MESSAGE);
+            }
         } else {
             if (output == null) {
                 output = OutputValue.CONSOLE.getValue();
@@ -133,7 +410,8 @@ public class CommandLineArgsService {
     }
 
     /**
-     * Validates the sorting parameters.
+     * Validates the sorting parameters, the limit of employees per department and the
+     * spill threshold.
      *
      * @throws CustomIllArgException if the sorting parameters are invalid
      */
@@ -147,5 +425,11 @@ public class CommandLineArgsService {
         if (order != null && !order.equals(OrderValue.ASC.getValue()) && !order.equals(OrderValue.DESC.getValue())) {
             throw new CustomIllArgException(INCORRECT_ORDER_PARAM + order);
         }
+        if (limitValue != null) {
+            limit = parsePositiveInt(limitValue, INCORRECT_LIMIT_PARAM);
+        }
+        if (spillThresholdValue != null) {
+            spillThreshold = parsePositiveInt(spillThresholdValue, INCORRECT_SPILL_THRESHOLD_PARAM);
+        }
     }
 }
@@ -0,0 +1,58 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.exception.CustomIllArgException;
+import lombok.Getter;
+
+import java.util.Map;
+
+import static com.sigmaproject.utils.Constant.*;
+
+/**
+ * Service class for handling the command-line arguments of the daemon.
+ * <p>
+ * This class parses the daemon options with the same syntax as
+ * {@link CommandLineArgsService}: the loopback port to listen on and the number of
+ * jobs that may run at the same time.
+ * </p>
+ */
+@Getter
+public class DaemonArgsService {
+
+    private static final int MAX_PORT = 65535;
+
+    private int port = DEFAULT_DAEMON_PORT;
+    private int jobs = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructs a DaemonArgsService with the provided command-line arguments.
+     *
+     * @param args the command-line arguments to parse
+     * @throws CustomIllArgException if the arguments are invalid
+     */
+    public DaemonArgsService(String[] args) throws CustomIllArgException {
+        Map<String, String> params = CommandLineArgsService.parseOptions(args);
+
+        if (params.containsKey(PORT)) {
+            port = parsePort(params.get(PORT), INCORRECT_PORT_PARAM);
+        }
+        if (params.containsKey(JOBS)) {
+            jobs = CommandLineArgsService.parsePositiveInt(params.get(JOBS), INCORRECT_JOBS_PARAM);
+        }
+    }
+
+    /**
+     * Parses the value of a port parameter.
+     *
+     * @param value        the parameter value
+     * @param errorMessage the error message for an incorrect value
+     * @return the port
+     * @throws CustomIllArgException if the value is not a valid TCP port
+     */
+    static int parsePort(String value, String errorMessage) {
+        int port = CommandLineArgsService.parsePositiveInt(value, errorMessage);
+        if (port > MAX_PORT) {
+            throw new CustomIllArgException(errorMessage + value);
+        }
+        return port;
+    }
+}
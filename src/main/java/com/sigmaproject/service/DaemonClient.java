@@ -0,0 +1,115 @@
+package com.sigmaproject.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.sigmaproject.exception.CustomIllArgException.printErrorMessage;
+import static com.sigmaproject.utils.Constant.*;
+
+/**
+ * Service class for the thin client of the daemon.
+ * <p>
+ * The client takes the command line of a normal run, sends it to the daemon on the
+ * loopback port given by {@code --daemon-port} together with the {@link DaemonToken}
+ * of that port and the working directory, and copies the console output of the job
+ * to its own console. If no daemon is
+ * listening, the job runs in the client's own JVM instead, so the client can replace
+ * a direct launch in any script.
+ * </p>
+ */
+public class DaemonClient {
+
+    private static final int BUFFER_SIZE = 8 << 10;
+
+    /**
+     * Runs a job on the daemon, or locally if the daemon is not running.
+     *
+     * @param args the command-line arguments of the job, optionally with {@code --daemon-port}
+     */
+    public static void run(String[] args) {
+        Map<String, String> options = CommandLineArgsService.parseOptions(args);
+        int port = DEFAULT_DAEMON_PORT;
+        if (options.containsKey(DAEMON_PORT)) {
+            port = DaemonArgsService.parsePort(options.get(DAEMON_PORT), INCORRECT_DAEMON_PORT_PARAM);
+        }
+        String[] jobArgs = withoutDaemonPort(args);
+
+        Socket socket;
+        try {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        } catch (ConnectException e) {
+            ApplicationService.runApplication(new CommandLineArgsService(jobArgs));
+            return;
+        } catch (IOException e) {
+            printErrorMessage(ERR_DAEMON + e.getMessage());
+            return;
+        }
+
+        try (Socket s = socket;
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), BUFFER_SIZE));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), BUFFER_SIZE))) {
+            String token;
+            try {
+                token = DaemonToken.read(port);
+            } catch (IOException e) {
+                printErrorMessage(ERR_DAEMON_TOKEN + e.getMessage());
+                return;
+            }
+            out.writeInt(DaemonService.MAGIC);
+            out.writeUTF(token);
+            out.writeUTF(Paths.get("").toAbsolutePath().toString());
+            out.writeInt(jobArgs.length);
+            for (String arg : jobArgs) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int type;
+            while ((type = in.readByte()) != DaemonService.END) {
+                PrintStream console = type == DaemonService.STDOUT ? System.out : System.err;
+                int length = in.readInt();
+                while (length > 0) {
+                    int n = Math.min(length, buffer.length);
+                    in.readFully(buffer, 0, n);
+                    console.write(buffer, 0, n);
+                    length -= n;
+                }
+                console.flush();
+            }
+        } catch (IOException e) {
+            printErrorMessage(ERR_DAEMON + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the daemon port option, which is meant for the client only.
+     *
+     * @param args the command-line arguments
+     * @return the arguments of the job
+     */
+    private static String[] withoutDaemonPort(String[] args) {
+        List<String> jobArgs = new ArrayList<>();
+        for (String arg : args) {
+            String option = arg.startsWith(DOUBLE_DASH) ? arg.substring(2)
+                    : arg.startsWith(SINGLE_DASH) ? arg.substring(1) : "";
+            int eqIdx = option.indexOf(EQUALS);
+            String key = (eqIdx >= 0 ? option.substring(0, eqIdx) : option).toLowerCase();
+            if (!key.equals(DAEMON_PORT)) {
+                jobArgs.add(arg);
+            }
+        }
+        return jobArgs.toArray(new String[0]);
+    }
+}
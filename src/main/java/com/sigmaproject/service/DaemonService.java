@@ -0,0 +1,268 @@
+package com.sigmaproject.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.sigmaproject.exception.CustomIllArgException.printErrorMessage;
+import static com.sigmaproject.utils.Constant.*;
+
+/**
+ * Service class for the daemon mode.
+ * <p>
+ * The daemon listens on a loopback port and runs every job it receives on a warm JVM,
+ * with the same options a command-line run takes. A job request carries the
+ * {@link DaemonToken} of the daemon, the client's working directory, against which the
+ * input and output directories and all other relative paths of the job are resolved,
+ * and the arguments:
+ * </p>
+ * <pre>
+ * int    {@link #MAGIC}
+ * UTF    token
+ * UTF    working directory
+ * int    number of arguments
+ * UTF    argument, for every argument
+ * </pre>
+ * <p>
+ * The daemon answers with the console output of the job as frames of a type byte,
+ * {@link #STDOUT} or {@link #STDERR}, a length and the bytes, and a final {@link #END}
+ * byte. Up to {@code --jobs} jobs run at the same time and share the {@link WorkerPools}
+ * of the daemon; jobs that use the same input or output directory, which hold the
+ * parse cache, the snapshot and the output manifest, run one after another.
+ * A job runs with the privileges of the user who started the daemon, so a request
+ * without the token is answered with an error and not run.
+ * </p>
+ * <p>
+ * Requests are read by a few handshake threads of their own, so a job takes one of the
+ * {@code --jobs} slots only once its token is checked. At most
+ * {@link com.sigmaproject.utils.Constant#DAEMON_HANDSHAKE_THREADS} connections are read
+ * at a time, and a client that does not send its whole request within
+ * {@link com.sigmaproject.utils.Constant#DAEMON_HANDSHAKE_TIMEOUT_MS} is disconnected,
+ * so connections that never send a request cannot block the daemon.
+ * </p>
+ */
+public class DaemonService {
+
+    /**
+     * First field of a job request.
+     */
+    static final int MAGIC = 0x53424a01;
+
+    /**
+     * Frame type of standard output.
+     */
+    static final int STDOUT = 1;
+
+    /**
+     * Frame type of standard error.
+     */
+    static final int STDERR = 2;
+
+    /**
+     * Frame type that ends the response.
+     */
+    static final int END = 0;
+
+    private static final int BUFFER_SIZE = 8 << 10;
+
+    private static final ConcurrentMap<Path, ReentrantLock> DIRECTORY_LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * Accepts and runs jobs until the daemon is stopped.
+     *
+     * @param args the daemon parameters
+     */
+    public static void serve(DaemonArgsService args) {
+        WorkerPools pools = WorkerPools.shared();
+        ExecutorService jobs = Executors.newFixedThreadPool(args.getJobs());
+        ExecutorService handshakes = Executors.newFixedThreadPool(DAEMON_HANDSHAKE_THREADS);
+        Semaphore pending = new Semaphore(DAEMON_HANDSHAKE_THREADS);
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (ServerSocket server = new ServerSocket(args.getPort(), args.getJobs() * 4, loopback)) {
+            String token;
+            try {
+                token = DaemonToken.create(args.getPort());
+            } catch (IOException e) {
+                printErrorMessage(ERR_DAEMON_TOKEN + e.getMessage());
+                return;
+            }
+            JobConsole.install();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                handshakes.shutdownNow();
+                jobs.shutdownNow();
+                pools.close();
+                DaemonToken.delete(args.getPort(), token);
+            }));
+            System.err.println(String.format(DAEMON_STARTED_TEMPLATE, loopback.getHostAddress(), server.getLocalPort()));
+            while (true) {
+                pending.acquireUninterruptibly();
+                Socket socket = server.accept();
+                handshakes.execute(() -> {
+                    try {
+                        readRequest(socket, token, jobs, pools);
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+        } catch (IOException e) {
+            printErrorMessage(ERR_DAEMON + e.getMessage());
+        } finally {
+            handshakes.shutdownNow();
+            jobs.shutdownNow();
+            pools.close();
+        }
+    }
+
+    /**
+     * Reads a job request within the handshake timeout and hands the job over to the
+     * job threads. A request without the token of the daemon is answered with an error
+     * only, and a connection that is too slow to send its request is closed.
+     *
+     * @param socket the connection of the client
+     * @param token  the token of the daemon
+     * @param jobs   the executor running the jobs
+     * @param pools  the worker pools of the daemon
+     */
+    private static void readRequest(Socket socket, String token, ExecutorService jobs, WorkerPools pools) {
+        boolean handedOver = false;
+        try {
+            socket.setSoTimeout(DAEMON_HANDSHAKE_TIMEOUT_MS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            if (!DaemonToken.matches(token, in.readUTF())) {
+                new Frames(out, STDERR).write((ERR_DAEMON_REJECTED + System.lineSeparator())
+                        .getBytes(StandardCharsets.UTF_8));
+                out.writeByte(END);
+                out.flush();
+                return;
+            }
+            Path workingDir = Paths.get(in.readUTF());
+            String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+            socket.setSoTimeout(0);
+            jobs.execute(() -> runJob(socket, out, workingDir, args, pools));
+            handedOver = true;
+        } catch (SocketTimeoutException | SocketException e) {
+            // The client was too slow or went away before sending its request.
+        } catch (IOException e) {
+            printErrorMessage(ERR_DAEMON + e.getMessage());
+        } finally {
+            if (!handedOver) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Nothing is left to send on this connection.
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a job and sends its console output back.
+     *
+     * @param socket     the connection of the client
+     * @param out        the stream to the client
+     * @param workingDir the working directory of the client
+     * @param args       the arguments of the job
+     * @param pools      the worker pools of the daemon
+     */
+    private static void runJob(Socket socket, DataOutputStream out, Path workingDir, String[] args,
+                               WorkerPools pools) {
+        try (Socket s = socket) {
+            JobConsole.attach(new Frames(out, STDOUT), new Frames(out, STDERR));
+            try {
+                runApplication(new CommandLineArgsService(args, workingDir, pools));
+            } catch (Exception e) {
+                System.err.println(FINAL_MESSAGE);
+            } finally {
+                JobConsole.detach();
+            }
+            out.writeByte(END);
+            out.flush();
+        } catch (SocketException e) {
+            // The client went away; the job has run or is abandoned.
+        } catch (IOException e) {
+            printErrorMessage(ERR_DAEMON + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a job while holding the locks of its input and output directories.
+     *
+     * @param params the job parameters
+     */
+    private static void runApplication(CommandLineArgsService params) {
+        TreeSet<Path> directories = new TreeSet<>();
+        directories.add(params.getInputDir().toAbsolutePath().normalize());
+        directories.add(params.getOutputDir().toAbsolutePath().normalize());
+        for (Path directory : directories) {
+            DIRECTORY_LOCKS.computeIfAbsent(directory, d -> new ReentrantLock()).lock();
+        }
+        try {
+            ApplicationService.runApplication(params);
+        } finally {
+            for (Path directory : directories.descendingSet()) {
+                DIRECTORY_LOCKS.get(directory).unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes console output to the client as frames of one type.
+     */
+    private static final class Frames extends OutputStream {
+
+        private final DataOutputStream out;
+        private final int type;
+
+        Frames(DataOutputStream out, int type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.sigmaproject.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import static com.sigmaproject.utils.Constant.DAEMON_TOKEN_DIR;
+import static com.sigmaproject.utils.Constant.DAEMON_TOKEN_FILE_TEMPLATE;
+
+/**
+ * Shared secret between the daemon and its clients.
+ * <p>
+ * When the daemon starts it writes a random token to a file in the user's home
+ * directory that only the user can read, one file per port, and runs a job only if
+ * the request carries that token. A client reads the file of the port it connects to,
+ * so only processes of the user who started the daemon can submit jobs, although
+ * every local user can reach the loopback port. On file systems without POSIX
+ * permissions the token file is protected by the permissions of the home directory.
+ * </p>
+ */
+final class DaemonToken {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String POSIX = "posix";
+    private static final String OWNER_ONLY_DIRECTORY = "rwx------";
+    private static final String OWNER_ONLY_FILE = "rw-------";
+
+    private DaemonToken() {
+    }
+
+    /**
+     * Returns the token file of the daemon on a port.
+     *
+     * @param port the daemon port
+     * @return the token file
+     */
+    static Path file(int port) {
+        return Paths.get(System.getProperty("user.home"), DAEMON_TOKEN_DIR,
+                String.format(DAEMON_TOKEN_FILE_TEMPLATE, port));
+    }
+
+    /**
+     * Generates a new token and writes it to the token file of a port, readable and
+     * writable by the owner only. The file is written under a temporary name and
+     * renamed into place, so a client never reads a partial token.
+     *
+     * @param port the daemon port
+     * @return the token
+     * @throws IOException if the token file cannot be written
+     */
+    static String create(int port) throws IOException {
+        byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        StringBuilder token = new StringBuilder(2 * TOKEN_BYTES);
+        for (byte b : random) {
+            token.append(Character.forDigit(b >> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+
+        Path file = file(port);
+        Path directory = file.getParent();
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains(POSIX);
+        Path temp;
+        if (posix) {
+            if (!Files.isDirectory(directory)) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(OWNER_ONLY_DIRECTORY)));
+            }
+            temp = Files.createTempFile(directory, file.getFileName().toString(), TEMP_SUFFIX,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(OWNER_ONLY_FILE)));
+        } else {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, file.getFileName().toString(), TEMP_SUFFIX);
+        }
+        try {
+            Files.write(temp, token.toString().getBytes(StandardCharsets.US_ASCII));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return token.toString();
+    }
+
+    /**
+     * Reads the token of the daemon on a port.
+     *
+     * @param port the daemon port
+     * @return the token
+     * @throws IOException if the token file cannot be read
+     */
+    static String read(int port) throws IOException {
+        return new String(Files.readAllBytes(file(port)), StandardCharsets.US_ASCII).trim();
+    }
+
+    /**
+     * Deletes the token file of a port if it still holds the given token.
+     *
+     * @param port  the daemon port
+     * @param token the token of the stopping daemon
+     */
+    static void delete(int port, String token) {
+        try {
+            if (matches(token, read(port))) {
+                Files.deleteIfExists(file(port));
+            }
+        } catch (IOException e) {
+            // The file is gone or was replaced by another daemon.
+        }
+    }
+
+    /**
+     * Compares a received token with the expected one in time that does not depend on
+     * where they differ.
+     *
+     * @param expected the token of the daemon
+     * @param actual   the received token
+     * @return {@code true} if the tokens are equal
+     */
+    static boolean matches(String expected, String actual) {
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII),
+                actual.getBytes(StandardCharsets.US_ASCII));
+    }
+}
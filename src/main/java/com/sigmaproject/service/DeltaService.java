@@ -0,0 +1,211 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.event.FileReadEvent;
+import com.sigmaproject.model.Department;
+import com.sigmaproject.model.Employee;
+import com.sigmaproject.model.Manager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.sigmaproject.exception.CustomIllArgException.printErrorMessage;
+import static com.sigmaproject.utils.Constant.*;
+
+/**
+ * Service class for incremental runs.
+ * <p>
+ * A full run with {@code --snapshot} persists its managers, departments and employees in
+ * a {@link Snapshot}. A run with {@code --delta} then reads the .sb files of the working
+ * directory as delta files with one change per line:
+ * </p>
+ * <pre>
+ * Upsert,Manager,id,name,salary,department
+ * Upsert,Employee,id,name,salary,managerId
+ * Delete,Manager,id
+ * Delete,Employee,id
+ * </pre>
+ * <p>
+ * The changes are applied to the snapshot in file and line order, and only the departments
+ * they touch are rebuilt, or all of them if the sort and limit options differ from the
+ * run that last wrote the output: their snapshot files, statistics and output files are written
+ * again, while the other departments are neither read nor written. Statistics of untouched
+ * departments come from the snapshot. Rejected lines and duplicate managers are written
+ * to the error log.
+ * </p>
+ */
+public class DeltaService {
+
+    /**
+     * Writes the snapshot of a full run.
+     *
+     * @param managers    all accepted managers in read order
+     * @param departments the departments, before their employees are sorted
+     * @param params      command line parameters
+     */
+    public static void writeSnapshot(Collection<Manager> managers,
+                                     Map<String, Department> departments,
+                                     CommandLineArgsService params
+    ) {
+        try {
+            Snapshot.write(params.getInputDir().resolve(SNAPSHOT_DIR), managers, departments, outputOptions(params));
+        } catch (IOException e) {
+            printErrorMessage(ERR_SNAPSHOT + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the delta files to the snapshot and rewrites the affected output.
+     *
+     * @param params command line parameters
+     */
+    public static void applyDelta(CommandLineArgsService params) {
+        RunMetrics metrics = params.getMetrics();
+        metrics.begin(STAGE_APPLY_DELTA);
+        Snapshot snapshot;
+        try {
+            snapshot = Snapshot.load(params.getInputDir().resolve(SNAPSHOT_DIR));
+        } catch (IOException e) {
+            printErrorMessage(ERR_SNAPSHOT + e.getMessage());
+            return;
+        }
+
+        List<String> errorLines = new ArrayList<>();
+        List<Path> files;
+        long lines = 0;
+        try {
+            snapshot.useOutputOptions(outputOptions(params));
+            files = FileService.listInputFiles(params.getInputDir());
+            for (Path file : files) {
+                FileReadEvent event = new FileReadEvent();
+                event.begin();
+                long fileLines = 0;
+                try (BufferedReader reader = Files.newBufferedReader(file)) {
+                    String lineRaw;
+                    while ((lineRaw = reader.readLine()) != null) {
+                        applyLine(snapshot, lineRaw, errorLines);
+                        fileLines++;
+                    }
+                }
+                FileService.commitFileRead(event, file, fileLines, false);
+                lines += fileLines;
+            }
+        } catch (IOException e) {
+            // The snapshot is left as it was, so the delta can be applied again.
+            printErrorMessage(ERR_READ_INPUT_FILES + e.getMessage());
+            return;
+        }
+
+        Map<String, Department> changed = snapshot.changedDepartments();
+        try {
+            snapshot.save(changed);
+        } catch (IOException e) {
+            printErrorMessage(ERR_SNAPSHOT + e.getMessage());
+        }
+
+        FileService.deleteOutputFiles(snapshot.removedDepartments(), params);
+        metrics.bytesRead(files);
+        metrics.records(lines, changed.size());
+        metrics.errors(REASON_REJECTED_LINE, errorLines.size());
+
+        metrics.begin(STAGE_SORT);
+        EmployeeService.sortEmployees(changed, params);
+        long employees = 0;
+        for (Department dept : changed.values()) {
+            employees += dept.getEmployees().size();
+        }
+        metrics.records(employees, employees);
+
+        metrics.begin(STAGE_WRITE_OUTPUT);
+        int written = FileService.writeOutputFiles(changed, Collections.emptyList(), params);
+        metrics.records(changed.size(), written);
+
+        metrics.begin(STAGE_WRITE_ERROR_LOG);
+        FileService.writeErrorLog(errorLines, params);
+        metrics.records(errorLines.size(), errorLines.size());
+
+        if (params.isStat()) {
+            metrics.begin(STAGE_STATISTICS);
+            Map<String, String[]> statistics = snapshot.statistics();
+            StatisticsService.writeStatisticsLines(statistics, params);
+            metrics.records(statistics.size(), statistics.size());
+        }
+        metrics.end();
+    }
+
+    /**
+     * Describes the options that determine the content of the department files.
+     *
+     * @param params command line parameters
+     * @return the sort field, order and limit
+     */
+    private static String outputOptions(CommandLineArgsService params) {
+        return params.getSortBy() + CSV_DELIMITER + params.getOrder() + CSV_DELIMITER + params.getLimit();
+    }
+
+    /**
+     * Applies a single line of a delta file.
+     *
+     * @param snapshot   the snapshot
+     * @param lineRaw    raw line from the file
+     * @param errorLines list to collect error messages
+     * @throws IOException if a department of the snapshot cannot be loaded
+     */
+    private static void applyLine(Snapshot snapshot, String lineRaw, List<String> errorLines) throws IOException {
+        String line = lineRaw.trim();
+
+        if (line.isEmpty()) {
+            return;
+        }
+
+        String[] parts = line.split(CSV_DELIMITER, -1);
+        String operation = parts[0].trim();
+        boolean applied = false;
+        if (parts.length == 6 && UPSERT.equalsIgnoreCase(operation)) {
+            applied = upsert(snapshot, parts, errorLines);
+        } else if (parts.length == 3 && DELETE.equalsIgnoreCase(operation)) {
+            applied = delete(snapshot, parts);
+        }
+        if (!applied) {
+            errorLines.add(lineRaw);
+        }
+    }
+
+    private static boolean upsert(Snapshot snapshot, String[] parts, List<String> errorLines) throws IOException {
+        String position = parts[1].trim();
+        String id = parts[2].trim();
+        String name = parts[3].trim();
+        double salary = SalaryService.parseSalary(parts[4].trim());
+        String last = parts[5].trim();
+
+        if (!SalaryService.isValid(salary)) {
+            return false;
+        }
+        if (MANAGER.equalsIgnoreCase(position)) {
+            return !last.isEmpty() && snapshot.upsertManager(new Manager(id, name, salary, last), errorLines);
+        }
+        if (EMPLOYEE.equalsIgnoreCase(position)) {
+            return snapshot.upsertEmployee(new Employee(id, name, salary, last));
+        }
+        return false;
+    }
+
+    private static boolean delete(Snapshot snapshot, String[] parts) throws IOException {
+        String position = parts[1].trim();
+        String id = parts[2].trim();
+
+        if (MANAGER.equalsIgnoreCase(position)) {
+            return snapshot.deleteManager(id);
+        }
+        if (EMPLOYEE.equalsIgnoreCase(position)) {
+            return snapshot.deleteEmployee(id);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,104 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.Department;
+import com.sigmaproject.model.Manager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of departments that can be filled from many threads at once.
+ * <p>
+ * Every manager is registered with its rank, its position in read order. The manager
+ * with the lowest rank owns its department no matter which thread registers first:
+ * a candidate replaces the current owner with a compare-and-set only if it ranks lower,
+ * and the loser of every contest is recorded as a duplicate manager. The result is
+ * therefore the same for any interleaving of the registering threads.
+ * </p>
+ */
+final class DepartmentRegistry {
+
+    private final ConcurrentMap<String, Entry> owners = new ConcurrentHashMap<>();
+    private final Queue<Entry> duplicates = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Registers a manager for its department.
+     *
+     * @param manager the manager
+     * @param rank    position of the manager in read order; ranks must be unique
+     */
+    void register(Manager manager, long rank) {
+        Entry candidate = new Entry(rank, manager);
+        String name = manager.getDepartment();
+        while (true) {
+            Entry current = owners.putIfAbsent(name, candidate);
+            if (current == null) {
+                return;
+            }
+            if (current.rank < candidate.rank) {
+                duplicates.add(candidate);
+                return;
+            }
+            if (owners.replace(name, current, candidate)) {
+                duplicates.add(current);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Creates the departments with their owning managers.
+     * <p>
+     * The returned map is a plain hash map and has no particular order. It is filled
+     * in the order of the owners' ranks, so that departments whose names collide in a
+     * bucket iterate the same way for any number of threads.
+     * </p>
+     *
+     * @return a map of departments by name
+     */
+    Map<String, Department> departments() {
+        List<Entry> winners = new ArrayList<>(owners.values());
+        winners.sort(Comparator.comparingLong(e -> e.rank));
+        Map<String, Department> departments = new HashMap<>();
+        for (Entry winner : winners) {
+            departments.put(winner.manager.getDepartment(), new Department(winner.manager.getDepartment(), winner.manager));
+        }
+        return departments;
+    }
+
+    /**
+     * Returns the managers that lost their department to a lower ranked manager.
+     *
+     * @return the duplicate managers in rank order
+     */
+    List<Manager> duplicates() {
+        List<Entry> losers = new ArrayList<>(duplicates);
+        losers.sort(Comparator.comparingLong(e -> e.rank));
+        List<Manager> managers = new ArrayList<>(losers.size());
+        for (Entry loser : losers) {
+            managers.add(loser.manager);
+        }
+        return managers;
+    }
+
+    /**
+     * A registered manager with its rank.
+     */
+    private static final class Entry {
+
+        final long rank;
+        final Manager manager;
+
+        Entry(long rank, Manager manager) {
+            this.rank = rank;
+            this.manager = manager;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.sigmaproject.service;
 
+import com.sigmaproject.event.DepartmentCreationEvent;
 import com.sigmaproject.model.Department;
 import com.sigmaproject.model.Manager;
+import com.sigmaproject.utils.IdIndex;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import static com.sigmaproject.utils.Constant.*;
 
@@ -14,35 +18,99 @@ import static com.sigmaproject.utils.Constant.*;
  */
 public class DepartmentService {
 
+    /**
+     * Below this number of managers the departments are always created sequentially.
+     */
+    private static final int PARALLEL_REGISTRY_MIN_MANAGERS = 1 << 12;
+
     /**
      * Creates departments from the provided managers.
+     * <p>
+     * The managers are registered in a {@link DepartmentRegistry} ranked by their position
+     * in read order, so the first manager of a department owns it and the later ones are
+     * reported as duplicates, in read order. With more than one worker thread large
+     * manager sets are registered concurrently, with the same result.
+     * </p>
      *
      * @param allManagersById map of all managers
      * @param errorLines      list to collect error messages
+     * @param params          command line parameters
      * @return a map of departments
      */
-    public static Map<String, Department> createDepartments(Map<String, Manager> allManagersById,
-                                                            List<String> errorLines
+    public static Map<String, Department> createDepartments(IdIndex<Manager> allManagersById,
+                                                            List<String> errorLines,
+                                                            CommandLineArgsService params
     ) {
-        Map<String, Department> departments = new HashMap<>();
-
-        for (Manager m : allManagersById.values()) {
-            departments.putIfAbsent(m.getDepartment(), new Department(m.getDepartment(), m));
-            Department dept = departments.get(m.getDepartment());
-            if (dept.getManager() != m) {
-                errorLines.add(String.format(DUPLICATE_MANAGER_MESSAGE_TEMPLATE,
-                        DUPLICATE_MANAGER_ERR,
-                        m.getDepartment(),
-                        QUOTE_SPACE_COLON_SPACE,
-                        m.toString())
-                );
-            } else {
-                dept.setManager(m);
+        DepartmentCreationEvent event = new DepartmentCreationEvent();
+        event.begin();
+        DepartmentRegistry registry = new DepartmentRegistry();
+        Manager[] managers = allManagersById.values().toArray(new Manager[0]);
+
+        if (params.getThreads() > 1 && managers.length >= PARALLEL_REGISTRY_MIN_MANAGERS) {
+            registerParallel(registry, managers, params);
+        } else {
+            for (int i = 0; i < managers.length; i++) {
+                registry.register(managers[i], i);
             }
         }
+
+        List<Manager> duplicates = registry.duplicates();
+        for (Manager m : duplicates) {
+            errorLines.add(duplicateManagerLine(m));
+        }
+        Map<String, Department> departments = registry.departments();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.managers = managers.length;
+            event.departments = departments.size();
+            event.duplicateManagers = duplicates.size();
+            event.commit();
+        }
         return departments;
     }
 
+    /**
+     * Registers the managers on a fork-join pool.
+     *
+     * @param registry the registry to fill
+     * @param managers the managers in read order
+     * @param params   command line parameters
+     */
+    private static void registerParallel(DepartmentRegistry registry, Manager[] managers,
+                                         CommandLineArgsService params) {
+        ForkJoinPool pool = params.getPools().forkJoinPool(params.getThreads(), params.getMetrics());
+        try {
+            pool.submit(() -> IntStream.range(0, managers.length)
+                    .parallel()
+                    .forEach(i -> registry.register(managers[i], i)))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            params.getPools().release(pool, params.getMetrics());
+        }
+    }
+
+    /**
+     * Formats the error line for a manager of a department that already has a manager.
+     *
+     * @param m the duplicate manager
+     * @return the error line
+     */
+    static String duplicateManagerLine(Manager m) {
+        return String.format(DUPLICATE_MANAGER_MESSAGE_TEMPLATE,
+                DUPLICATE_MANAGER_ERR,
+                m.getDepartment(),
+                QUOTE_SPACE_COLON_SPACE,
+                m.toString());
+    }
+
     /**
      * Removes departments that do not have a manager.
      *
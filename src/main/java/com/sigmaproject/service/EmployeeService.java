@@ -1,15 +1,18 @@
 package com.sigmaproject.service;
 
+import com.sigmaproject.event.DepartmentSortEvent;
+import com.sigmaproject.event.EmployeeDistributionEvent;
 import com.sigmaproject.model.Department;
-import com.sigmaproject.model.Employee;
+import com.sigmaproject.model.EmployeeIndex;
+import com.sigmaproject.model.EmployeeStore;
 import com.sigmaproject.model.Manager;
 import com.sigmaproject.model.enums.OrderValue;
-import com.sigmaproject.model.enums.SortValue;
+import com.sigmaproject.utils.IdIndex;
 
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.sigmaproject.exception.CustomIllArgException.printErrorMessage;
 import static com.sigmaproject.utils.Constant.SORT_ERROR_MESSAGE;
@@ -19,27 +22,36 @@ import static com.sigmaproject.utils.Constant.SORT_ERROR_MESSAGE;
  */
 public class EmployeeService {
 
+    /**
+     * Departments with at least this many employees are sorted on several threads.
+     */
+    private static final int PARALLEL_DEPARTMENT_SORT_THRESHOLD = 1 << 16;
+
+    /**
+     * Below this total number of employees a parallel sort is not worth starting a pool.
+     */
+    private static final int PARALLEL_SORT_MIN_EMPLOYEES = 1 << 14;
+
     /**
      * Creates a manager and adds it to the manager map.
      *
      * @param id              manager's ID
      * @param name            manager's name
-     * @param salaryStr       manager's salary as string
-     * @param last            manager's last name
+     * @param salary          manager's parsed salary
+     * @param last            manager's department
      * @param allManagersById map to store managers
      * @param errorLines      list to collect error messages
      * @param lineRaw         raw line from the file
      */
     public static void createManager(String id,
                                      String name,
-                                     String salaryStr,
+                                     double salary,
                                      String last,
-                                     Map<String, Manager> allManagersById,
+                                     IdIndex<Manager> allManagersById,
                                      List<String> errorLines,
                                      String lineRaw
     ) {
-        Double salary = SalaryService.parseSalary(salaryStr);
-        if (salary == null || last.isEmpty() || allManagersById.containsKey(id)) {
+        if (!SalaryService.isValid(salary) || last.isEmpty() || allManagersById.containsKey(id)) {
             errorLines.add(lineRaw);
             return;
         }
@@ -48,76 +60,98 @@ public class EmployeeService {
     }
 
     /**
-     * Creates an employee and adds it to the employee map.
+     * Adds an employee to the employee index, as a row of its columns.
      *
      * @param id               employee's ID
      * @param name             employee's name
-     * @param salaryStr        employee's salary as string
-     * @param allEmployeesById map to store employees
+     * @param salary           employee's parsed salary
+     * @param allEmployeesById index to store employees
      * @param errorLines       list to collect error messages
      * @param last             raw line from the file
+     * @param source           the {@link com.sigmaproject.utils.LineSpan} of the line if it can be copied
+     *                         to the output unchanged, {@link com.sigmaproject.utils.LineSpan#NONE} otherwise
      */
     public static void createEmployee(String id,
                                       String name,
-                                      String salaryStr,
-                                      Map<String, Employee> allEmployeesById,
+                                      double salary,
+                                      EmployeeIndex allEmployeesById,
                                       List<String> errorLines,
-                                      String last
+                                      String last,
+                                      long source
     ) {
-        Double salary = SalaryService.parseSalary(salaryStr);
-        if (allEmployeesById.containsKey(id)) {
+        if (!allEmployeesById.add(id, name, salary, last, source)) {
             errorLines.add(last);
-            return;
         }
-        Employee employee = new Employee(id, name, salary, last);
-        allEmployeesById.put(id, employee);
     }
 
     /**
-     * Distributes employees to their respective departments.
+     * Distributes employees to their respective departments and counts their salaries
+     * in the department statistics. With {@code --spill-threshold} the employees of a
+     * department are spilled to a sorted run file whenever it reaches the threshold.
      *
-     * @param allEmployeesById map of all employees
+     * @param allEmployeesById index of all employees
      * @param allManagersById  map of all managers
      * @param departments      map of departments
      * @param errorLines       list to collect error messages
+     * @param params           command line parameters
      */
-    public static void distributeEmployees(Map<String, Employee> allEmployeesById,
-                                           Map<String, Manager> allManagersById,
+    public static void distributeEmployees(EmployeeIndex allEmployeesById,
+                                           IdIndex<Manager> allManagersById,
                                            Map<String, Department> departments,
-                                           List<String> errorLines
+                                           List<String> errorLines,
+                                           CommandLineArgsService params
     ) {
-        for (Employee e : allEmployeesById.values()) {
-            Manager manager = allManagersById.get(e.getManagerId());
-
-            if (manager == null) {
-                errorLines.add(e.toString());
-                continue;
-            }
-            Department dept = departments.get(manager.getDepartment());
+        EmployeeDistributionEvent event = new EmployeeDistributionEvent();
+        event.begin();
+        long orphans = 0;
+        EmployeeStore rows = allEmployeesById.getRows();
+        for (int row = 0; row < rows.size(); row++) {
+            Manager manager = allManagersById.get(rows.getManagerId(row));
+            Department dept = manager != null ? departments.get(manager.getDepartment()) : null;
 
             if (dept == null) {
-                errorLines.add(e.toString());
+                errorLines.add(rows.get(row).toString());
+                orphans++;
                 continue;
             }
-            dept.getEmployees().add(e);
+            dept.getEmployees().addRow(rows, row);
+            dept.getSalaryStats().add(rows.getSalary(row));
+            SpillService.spillIfFull(dept, params);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.employees = allEmployeesById.size();
+            event.orphans = orphans;
+            event.departments = departments.size();
+            event.commit();
         }
     }
 
     /**
      * Sorts employees in departments based on specified criteria.
+     * <p>
+     * The sort is stable and works on the rows of each department's
+     * {@link EmployeeStore}, so no employee objects are created. With {@code --parallel-sort}
+     * the departments are sorted concurrently on a fork-join pool, and departments with at
+     * least {@link #PARALLEL_DEPARTMENT_SORT_THRESHOLD} employees are additionally sorted in
+     * chunks on the pool. Small jobs are sorted sequentially without a pool.
+     * </p>
      *
      * @param departments map of departments
      * @param params      command line parameters
      */
     public static void sortEmployees(Map<String, Department> departments, CommandLineArgsService params) {
         if (params.getSortBy() != null) {
-            Comparator<Employee> comparator = createComparator(params);
+            long employees = departments.values().stream().mapToLong(d -> d.getEmployees().size()).sum();
+            if (params.isParallelSort() && employees >= PARALLEL_SORT_MIN_EMPLOYEES) {
+                sortEmployeesParallel(departments, params);
+                return;
+            }
             for (Department dept : departments.values()) {
-                List<Employee> sorted = dept.getEmployees().stream()
-                        .sorted(comparator)
-                        .collect(Collectors.toList());
-                dept.getEmployees().clear();
-                dept.getEmployees().addAll(sorted);
+                if (!isSpilled(dept)) {
+                    sortDepartment(dept, params, 1);
+                }
             }
         } else if (params.getOrder() != null) {
             printErrorMessage(SORT_ERROR_MESSAGE);
@@ -125,21 +159,83 @@ public class EmployeeService {
     }
 
     /**
-     * Creates a comparator for sorting employees.
+     * Sorts the departments concurrently on a fork-join pool with one worker per
+     * {@code --threads} thread, or per available processor without that option.
+     *
+     * @param departments map of departments
+     * @param params      command line parameters
+     */
+    private static void sortEmployeesParallel(Map<String, Department> departments, CommandLineArgsService params) {
+        int parallelism = params.getThreads() > 1 ? params.getThreads() : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = params.getPools().forkJoinPool(parallelism, params.getMetrics());
+        try {
+            pool.submit(() -> departments.values().parallelStream()
+                    .filter(dept -> !isSpilled(dept))
+                    .forEach(dept -> sortDepartment(dept, params, parallelism)))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            params.getPools().release(pool, params.getMetrics());
+        }
+    }
+
+    /**
+     * Returns whether a department has spilled runs. Such a department is not sorted here:
+     * its in-memory employees are sorted when they are merged with the runs.
      *
-     * @param params command line parameters
-     * @return a Comparator for Employee
+     * @param dept the department
+     * @return {@code true} if employees of the department were spilled
      */
-    private static Comparator<Employee> createComparator(CommandLineArgsService params) {
-        Comparator<Employee> comparator;
-        if (SortValue.NAME.getValue().equals(params.getSortBy())) {
-            comparator = Comparator.comparing(Employee::getName, String.CASE_INSENSITIVE_ORDER);
+    private static boolean isSpilled(Department dept) {
+        return !dept.getSpilledRuns().getFiles().isEmpty();
+    }
+
+    /**
+     * Sorts the rows of one department.
+     * <p>
+     * The sort key of every employee is computed once by {@link SortKeys}, and the rows
+     * are ordered with a stable radix sort of the keys: an LSD sort of the salary bits or an
+     * MSD sort of the case-folded names. Large departments in a parallel sort are cut into
+     * chunks that are radix sorted concurrently and then merged. With {@code --limit} only the
+     * first employees are selected with a bounded heap and moved to the front; the other
+     * rows stay in the store, after them, so that statistics still cover every employee.
+     * </p>
+     *
+     * @param dept        the department
+     * @param params      command line parameters
+     * @param parallelism the number of threads a large department may be sorted on
+     */
+    private static void sortDepartment(Department dept, CommandLineArgsService params, int parallelism) {
+        DepartmentSortEvent event = new DepartmentSortEvent();
+        event.begin();
+        EmployeeStore store = dept.getEmployees();
+        boolean parallelSort = false;
+        SortKeys keys = SortKeys.of(store, params.getSortBy());
+        boolean descending = OrderValue.DESC.getValue().equals(params.getOrder());
+
+        if (params.getLimit() > 0) {
+            store.permute(keys.topOrder(params.getLimit(), descending));
+        } else if (parallelism > 1 && store.size() >= PARALLEL_DEPARTMENT_SORT_THRESHOLD) {
+            store.permute(keys.parallelOrder(parallelism, descending));
+            parallelSort = true;
         } else {
-            comparator = Comparator.comparing(e -> e.getSalary() == null ? Double.NaN : e.getSalary());
+            store.permute(keys.radixOrder(descending));
         }
-        if (OrderValue.DESC.getValue().equals(params.getOrder())) {
-            comparator = comparator.reversed();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.department = dept.getName();
+            event.size = store.size();
+            event.sortKey = params.getSortBy();
+            event.order = descending ? OrderValue.DESC.getValue() : OrderValue.ASC.getValue();
+            event.parallel = parallelSort;
+            event.commit();
         }
-        return comparator;
     }
 }
@@ -0,0 +1,98 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.EmployeeIndex;
+import com.sigmaproject.model.Manager;
+import com.sigmaproject.utils.IdIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Thread-local result of parsing a single input file.
+ * <p>
+ * A worker fills one buffer per file with the same rules the sequential reader uses,
+ * remembering the line number of every accepted record and error line so that
+ * buffers of different files can later be merged in file order.
+ * </p>
+ */
+class FileParseBuffer {
+
+    /**
+     * Position of the parsed file in the sorted input file list.
+     */
+    final int fileIndex;
+
+    /**
+     * Managers accepted within this file, keyed by ID.
+     */
+    final IdIndex<Manager> managersById = new IdIndex<>();
+
+    /**
+     * Employees accepted within this file, keyed by ID, with their rows in line order.
+     */
+    final EmployeeIndex employees = new EmployeeIndex();
+
+    /**
+     * Error lines found in this file, in line order.
+     */
+    final List<Ranked<String>> errors = new ArrayList<>();
+
+    /**
+     * The accepted managers tagged with their source lines, in line order.
+     */
+    final List<Ranked<Manager>> managers = new ArrayList<>();
+
+    /**
+     * Line numbers of the rows of {@link #employees}.
+     */
+    int[] employeeLines = new int[16];
+
+    /**
+     * Constructs an empty buffer for the file at the given position.
+     *
+     * @param fileIndex position of the file in the sorted input file list
+     */
+    FileParseBuffer(int fileIndex) {
+        this.fileIndex = fileIndex;
+    }
+
+    /**
+     * Records the line number of the employee row just accepted.
+     *
+     * @param lineNo the line number
+     */
+    void addEmployeeLine(int lineNo) {
+        int row = employees.getRows().size() - 1;
+        if (row == employeeLines.length) {
+            employeeLines = Arrays.copyOf(employeeLines, row * 2);
+        }
+        employeeLines[row] = lineNo;
+    }
+
+    /**
+     * A value tagged with the file and line it came from.
+     *
+     * @param <T> type of the value
+     */
+    static final class Ranked<T> implements Comparable<Ranked<T>> {
+
+        final int fileIndex;
+        final int lineNo;
+        final T value;
+        final String lineRaw;
+
+        Ranked(int fileIndex, int lineNo, T value, String lineRaw) {
+            this.fileIndex = fileIndex;
+            this.lineNo = lineNo;
+            this.value = value;
+            this.lineRaw = lineRaw;
+        }
+
+        @Override
+        public int compareTo(Ranked<T> other) {
+            int cmp = Integer.compare(fileIndex, other.fileIndex);
+            return cmp != 0 ? cmp : Integer.compare(lineNo, other.lineNo);
+        }
+    }
+}
@@ -1,15 +1,23 @@
 package com.sigmaproject.service;
 
+import com.sigmaproject.event.DepartmentWriteEvent;
+import com.sigmaproject.event.FileReadEvent;
 import com.sigmaproject.model.Department;
-import com.sigmaproject.model.Employee;
+import com.sigmaproject.model.EmployeeIndex;
+import com.sigmaproject.model.EmployeeStore;
 import com.sigmaproject.model.Manager;
+import com.sigmaproject.service.FileParseBuffer.Ranked;
+import com.sigmaproject.utils.ContentHash;
+import com.sigmaproject.utils.IdIndex;
+import com.sigmaproject.utils.LineSpan;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static com.sigmaproject.exception.CustomIllArgException.printErrorMessage;
 import static com.sigmaproject.utils.Constant.*;
@@ -19,62 +27,679 @@ import static com.sigmaproject.utils.Constant.*;
  */
 public class FileService {
 
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
     /**
      * Reads employee and manager data from .sb files.
+     * <p>
+     * Each file is streamed through a buffered reader, or memory-mapped and tokenized
+     * from the raw bytes with {@code --mmap}, and parsed one record at a time,
+     * so memory use per file stays constant regardless of the file size. Files are
+     * processed in file name order. With more than one worker thread the files are
+     * parsed concurrently and merged so that the result is the same as for a
+     * sequential run. With {@code --parse-cache} unchanged files are loaded from the
+     * {@link ParseCache} instead of being parsed, and merged the same way.
+     * </p>
      *
      * @param allManagersById  map to store managers
-     * @param allEmployeesById map to store employees
+     * @param allEmployeesById index to store employees
      * @param errorLines       list to collect error messages
+     * @param params           command line parameters
+     * @return the input files in processing order, which the file indexes of
+     * {@link com.sigmaproject.utils.LineSpan source spans} refer to
      */
-    public static void readFiles(Map<String, Manager> allManagersById,
-                                 Map<String, Employee> allEmployeesById,
-                                 List<String> errorLines
+    public static List<Path> readFiles(IdIndex<Manager> allManagersById,
+                                 EmployeeIndex allEmployeesById,
+                                 List<String> errorLines,
+                                 CommandLineArgsService params
     ) {
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get("."), FILE_EXTENSION_PATTERN)) {
-            for (Path path : stream) {
-                List<String> lines = Files.readAllLines(path);
-                processLines(lines, allManagersById, allEmployeesById, errorLines);
+        List<Path> paths;
+        try {
+            paths = listInputFiles(params.getInputDir());
+        } catch (IOException e) {
+            printErrorMessage(ERR_READ_INPUT_FILES + e.getMessage());
+            return Collections.emptyList();
+        }
+
+        if (params.isParseCache()) {
+            ParseCache cache = new ParseCache(params.getInputDir().resolve(PARSE_CACHE_DIR), params.isPassthrough());
+            if (params.isInvalidateCache()) {
+                try {
+                    cache.clear();
+                } catch (IOException e) {
+                    printErrorMessage(ERR_PARSE_CACHE + e.getMessage());
+                }
+            }
+            if (params.getThreads() > 1 && paths.size() > 1) {
+                readFilesParallel(paths, allManagersById, allEmployeesById, errorLines, params, cache);
+                return paths;
+            }
+            try {
+                for (int i = 0; i < paths.size(); i++) {
+                    FileParseBuffer buffer = loadOrParseFile(paths.get(i), i, params, cache);
+                    mergeBufferSequential(buffer, allManagersById, allEmployeesById, errorLines);
+                }
+            } catch (IOException e) {
+                printErrorMessage(ERR_READ_INPUT_FILES + e.getMessage());
+            }
+            return paths;
+        }
+
+        if (params.getThreads() > 1 && paths.size() > 1) {
+            readFilesParallel(paths, allManagersById, allEmployeesById, errorLines, params, null);
+            return paths;
+        }
+
+        try {
+            for (int i = 0; i < paths.size(); i++) {
+                FileReadEvent event = new FileReadEvent();
+                event.begin();
+                long lines;
+                try (LineSource source = openLineSource(paths.get(i), i, params)) {
+                    lines = processLines(source, allManagersById, allEmployeesById, errorLines);
+                }
+                commitFileRead(event, paths.get(i), lines, false);
             }
         } catch (IOException e) {
             printErrorMessage(ERR_READ_INPUT_FILES + e.getMessage());
         }
+        return paths;
+    }
+
+    /**
+     * Reads the .sb files and joins the employees to their departments while reading.
+     * <p>
+     * Files are read sequentially in file name order. Every accepted manager and employee
+     * is handed to a {@link StreamJoin} as soon as its line is parsed, so that employees are
+     * not held in an index until all managers are known; the employee index only remembers
+     * the IDs seen, for the duplicate check. Parse errors are collected while reading,
+     * followed by duplicate managers and orphans, as in the staged join.
+     * </p>
+     *
+     * @param managersById map to store managers
+     * @param departments  map to store the departments
+     * @param errorLines   list to collect error messages
+     * @param params       command line parameters
+     * @return the input files in processing order
+     */
+    public static List<Path> readFilesStreaming(IdIndex<Manager> managersById,
+                                                Map<String, Department> departments,
+                                                List<String> errorLines,
+                                                CommandLineArgsService params
+    ) {
+        List<Path> paths;
+        try {
+            paths = listInputFiles(params.getInputDir());
+        } catch (IOException e) {
+            printErrorMessage(ERR_READ_INPUT_FILES + e.getMessage());
+            return Collections.emptyList();
+        }
+
+        EmployeeIndex employeesById = new EmployeeIndex();
+        try (StreamJoin join = new StreamJoin(managersById, departments, params)) {
+            try {
+                for (int i = 0; i < paths.size(); i++) {
+                    FileReadEvent event = new FileReadEvent();
+                    event.begin();
+                    long lines = 0;
+                    try (LineSource source = openLineSource(paths.get(i), i, params)) {
+                        while (source.next()) {
+                            lines++;
+                            int managers = managersById.size();
+                            int employees = employeesById.size();
+                            String id = source.process(managersById, employeesById, errorLines);
+                            if (managersById.size() > managers) {
+                                join.acceptManager(managersById.get(id));
+                            } else if (employeesById.size() > employees) {
+                                EmployeeStore rows = employeesById.getRows();
+                                join.acceptEmployee(rows, rows.size() - 1);
+                                employeesById.releaseRows();
+                            }
+                        }
+                    }
+                    commitFileRead(event, paths.get(i), lines, false);
+                }
+            } catch (IOException e) {
+                printErrorMessage(ERR_READ_INPUT_FILES + e.getMessage());
+            }
+            params.getMetrics().errors(REASON_REJECTED_LINE, errorLines.size());
+            join.finish(errorLines);
+        }
+        return paths;
+    }
+
+    /**
+     * Reads the input files on a pool of worker threads.
+     * <p>
+     * Every worker parses a whole file into its own {@link FileParseBuffer}, and the
+     * buffers are merged in file order as their files are done, with the same duplicate
+     * checks as for the parse cache, so the accepted records and error lines are the same
+     * as for a sequential run. A file that could not be read stops the merge, like the
+     * sequential reader.
+     * </p>
+     *
+     * @param paths            input files in processing order
+     * @param allManagersById  map to store managers
+     * @param allEmployeesById index to store employees
+     * @param errorLines       list to collect error messages
+     * @param params           command line parameters
+     * @param cache            the parse cache, or {@code null} to parse every file
+     */
+    private static void readFilesParallel(List<Path> paths,
+                                          IdIndex<Manager> allManagersById,
+                                          EmployeeIndex allEmployeesById,
+                                          List<String> errorLines,
+                                          CommandLineArgsService params,
+                                          ParseCache cache
+    ) {
+        ExecutorService executor = params.getPools()
+                .fixedPool(Math.min(params.getThreads(), paths.size()), params.getMetrics());
+        List<Future<FileParseBuffer>> futures = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            int fileIndex = i;
+            futures.add(executor.submit(() -> cache != null
+                    ? loadOrParseFile(path, fileIndex, params, cache)
+                    : parseFile(path, fileIndex, params)));
+        }
+
+        try {
+            for (Future<FileParseBuffer> future : futures) {
+                FileParseBuffer buffer;
+                try {
+                    buffer = future.get();
+                } catch (ExecutionException e) {
+                    printErrorMessage(ERR_READ_INPUT_FILES + e.getCause().getMessage());
+                    return;
+                }
+                mergeBufferSequential(buffer, allManagersById, allEmployeesById, errorLines);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            printErrorMessage(ERR_READ_INPUT_FILES + e.getMessage());
+        } finally {
+            params.getPools().release(executor, params.getMetrics());
+        }
+    }
+
+    /**
+     * Loads the parse result of a file from the cache, or parses the file and stores
+     * the result in the cache. A failure to write the cache is reported and does not
+     * affect the result.
+     *
+     * @param path      the file to parse
+     * @param fileIndex position of the file in the sorted input file list
+     * @param params    command line parameters
+     * @param cache     the parse cache
+     * @return the filled buffer
+     * @throws IOException if the file cannot be read
+     */
+    private static FileParseBuffer loadOrParseFile(Path path, int fileIndex, CommandLineArgsService params,
+                                                   ParseCache cache) throws IOException {
+        FileReadEvent event = new FileReadEvent();
+        event.begin();
+        ParseCache.Fingerprint fingerprint = cache.fingerprint(path);
+        FileParseBuffer buffer = cache.load(path, fileIndex, fingerprint);
+        if (buffer != null) {
+            commitFileRead(event, path,
+                    buffer.managers.size() + buffer.employees.size() + buffer.errors.size(), true);
+            return buffer;
+        }
+        buffer = parseFile(path, fileIndex, params);
+        try {
+            cache.store(path, fingerprint, buffer);
+        } catch (IOException e) {
+            printErrorMessage(ERR_PARSE_CACHE + e.getMessage());
+        }
+        return buffer;
+    }
+
+    /**
+     * Parses a whole file into a thread-local buffer.
+     *
+     * @param path      the file to parse
+     * @param fileIndex position of the file in the sorted input file list
+     * @param params    command line parameters
+     * @return the filled buffer
+     * @throws IOException if the file cannot be read
+     */
+    private static FileParseBuffer parseFile(Path path, int fileIndex, CommandLineArgsService params)
+            throws IOException {
+        FileReadEvent event = new FileReadEvent();
+        event.begin();
+        FileParseBuffer buffer = new FileParseBuffer(fileIndex);
+        List<String> lineErrors = new ArrayList<>(1);
+        int lineNo = 0;
+        try (LineSource source = openLineSource(path, fileIndex, params)) {
+            while (source.next()) {
+                lineNo++;
+                int managers = buffer.managersById.size();
+                int employees = buffer.employees.size();
+                String id = source.process(buffer.managersById, buffer.employees, lineErrors);
+                if (buffer.managersById.size() > managers) {
+                    buffer.managers.add(new Ranked<>(fileIndex, lineNo, buffer.managersById.get(id), source.lineRaw()));
+                } else if (buffer.employees.size() > employees) {
+                    buffer.addEmployeeLine(lineNo);
+                }
+                for (String error : lineErrors) {
+                    buffer.errors.add(new Ranked<>(fileIndex, lineNo, error, null));
+                }
+                lineErrors.clear();
+            }
+        }
+        commitFileRead(event, path, lineNo, false);
+        return buffer;
+    }
+
+    /**
+     * Ends a file read event and commits it if it is enabled and above its threshold.
+     *
+     * @param event  the event begun before the file was opened
+     * @param path   the file read
+     * @param lines  the number of lines read
+     * @param cached whether the parse result was loaded from the parse cache
+     */
+    static void commitFileRead(FileReadEvent event, Path path, long lines, boolean cached) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path.toString();
+            try {
+                event.bytes = Files.size(path);
+            } catch (IOException e) {
+                // The size is only informative; the file was read already.
+            }
+            event.lines = lines;
+            event.cached = cached;
+            event.commit();
+        }
+    }
+
+    /**
+     * Merges a parsed file into the indexes of the files before it.
+     * <p>
+     * A record whose ID was accepted in an earlier file becomes the error line the
+     * sequential duplicate check would have produced for it, at its own line.
+     * </p>
+     *
+     * @param buffer           the parsed file
+     * @param allManagersById  map to store managers
+     * @param allEmployeesById index to store employees
+     * @param errorLines       list to collect error messages
+     */
+    private static void mergeBufferSequential(FileParseBuffer buffer,
+                                              IdIndex<Manager> allManagersById,
+                                              EmployeeIndex allEmployeesById,
+                                              List<String> errorLines
+    ) {
+        List<Ranked<String>> errors = buffer.errors;
+        boolean duplicates = false;
+        for (Ranked<Manager> r : buffer.managers) {
+            if (allManagersById.containsKey(r.value.getId())) {
+                if (!duplicates) {
+                    errors = new ArrayList<>(errors);
+                    duplicates = true;
+                }
+                errors.add(new Ranked<>(r.fileIndex, r.lineNo, r.lineRaw, null));
+            } else {
+                allManagersById.put(r.value.getId(), r.value);
+            }
+        }
+        EmployeeStore rows = buffer.employees.getRows();
+        for (int row = 0; row < rows.size(); row++) {
+            if (!allEmployeesById.add(rows, row)) {
+                if (!duplicates) {
+                    errors = new ArrayList<>(errors);
+                    duplicates = true;
+                }
+                errors.add(new Ranked<>(buffer.fileIndex, buffer.employeeLines[row], rows.getManagerId(row), null));
+            }
+        }
+        if (duplicates) {
+            Collections.sort(errors);
+        }
+        for (Ranked<String> r : errors) {
+            errorLines.add(r.value);
+        }
+    }
+
+    /**
+     * Opens a line source for the given file.
+     * <p>
+     * With {@code --passthrough} the memory-mapped source is used, as only it knows the
+     * byte offsets of the lines, and it tags copyable employee lines with their spans.
+     * </p>
+     *
+     * @param path      the file to read
+     * @param fileIndex position of the file in the input file list
+     * @param params    command line parameters
+     * @return a memory-mapped source with {@code --mmap} or {@code --passthrough},
+     * a buffered reader source otherwise
+     * @throws IOException if the file cannot be opened
+     */
+    private static LineSource openLineSource(Path path, int fileIndex, CommandLineArgsService params)
+            throws IOException {
+        if (params.isPassthrough()) {
+            return new MappedLineSource(path, fileIndex, LINE_SEPARATOR);
+        }
+        return params.isMmap() ? new MappedLineSource(path, fileIndex, null) : new ReaderLineSource(path);
+    }
+
+    /**
+     * Lists the .sb files of the input directory in file name order.
+     *
+     * @param inputDirectory the input directory
+     * @return the input files
+     * @throws IOException if the directory cannot be read
+     */
+    static List<Path> listInputFiles(Path inputDirectory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inputDirectory, FILE_EXTENSION_PATTERN)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        paths.sort(Comparator.comparing(p -> p.getFileName().toString()));
+        return paths;
     }
 
     /**
      * Writes output files for each department.
+     * <p>
+     * Records are encoded by a {@link RecordEncoder} straight from the department's
+     * {@link EmployeeStore} columns without creating any objects per line. With
+     * {@code --passthrough} runs of employee lines that are already in output form are
+     * copied from the input files instead. With {@code --limit} only the first employees of
+     * each department are written. With {@code --io-threads} greater than one
+     * the files are rendered and written concurrently on a bounded pool; the method returns
+     * only after every file has been written, and write errors are reported in department order.
+     * </p>
+     * <p>
+     * A file whose content did not change since the last run, according to the
+     * {@link OutputManifest} of the output directory, is not written again; the numbers of
+     * written and unchanged files are reported when all files are done.
+     * </p>
      *
      * @param departments map of departments
+     * @param inputFiles  the input files returned by {@link #readFiles}
+     * @param params      command line parameters
+     * @return the number of files written
      */
-    public static void writeOutputFiles(Map<String, Department> departments) {
+    public static int writeOutputFiles(Map<String, Department> departments,
+                                        List<Path> inputFiles,
+                                        CommandLineArgsService params
+    ) {
 
-        Path outputDirectory = getPath();
-        if (outputDirectory == null) return;
+        Path outputDirectory = getPath(params);
+        if (outputDirectory == null) return 0;
 
-        for (Department dept : departments.values()) {
-            try (BufferedWriter writer = Files.newBufferedWriter(outputDirectory.resolve(dept.getName() + POINT_S_B))) {
-                writer.write(dept.getManager().toString());
-                writer.newLine();
-                for (Employee e : dept.getEmployees()) {
-                    writer.write(e.toString());
-                    writer.newLine();
+        SourceFiles sources = params.isPassthrough() ? new SourceFiles(inputFiles) : null;
+        OutputManifest manifest = OutputManifest.load(outputDirectory);
+        int written = 0;
+        try {
+            if (params.getIoThreads() > 1 && departments.size() > 1) {
+                written = writeOutputFilesParallel(departments, outputDirectory, manifest, sources, params);
+            } else {
+                SourceFiles.Cursor cursor = sources != null ? sources.cursor() : null;
+                for (Department dept : departments.values()) {
+                    try {
+                        if (writeDepartmentFile(dept, outputDirectory, manifest, cursor, params)) {
+                            written++;
+                        }
+                    } catch (IOException e) {
+                        printErrorMessage(FILE_WRITE_ERR + dept.getName() + POINT_S_B + e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            closeSources(sources);
+            saveManifest(manifest);
+        }
+        System.err.println(String.format(OUTPUT_SUMMARY_TEMPLATE, written, departments.size() - written));
+        return written;
+    }
+
+    /**
+     * Writes the department files on a bounded pool of I/O threads.
+     * <p>
+     * The pool has a bounded task queue; when it is full the calling thread writes
+     * the next file itself, which keeps the number of pending departments bounded.
+     * </p>
+     *
+     * @param departments     map of departments
+     * @param outputDirectory the output directory
+     * @param manifest        the manifest of the output directory
+     * @param sources         the input files to copy source lines from, or {@code null}
+     * @param params          command line parameters
+     * @return the number of files written
+     */
+    private static int writeOutputFilesParallel(Map<String, Department> departments,
+                                                Path outputDirectory,
+                                                OutputManifest manifest,
+                                                SourceFiles sources,
+                                                CommandLineArgsService params
+    ) {
+        ExecutorService executor = params.getPools().boundedPool(params.getIoThreads(), params.getMetrics());
+        Map<String, Future<Boolean>> writes = new LinkedHashMap<>();
+        int written = 0;
+        try {
+            for (Department dept : departments.values()) {
+                writes.put(dept.getName(), executor.submit(() -> writeDepartmentFile(dept, outputDirectory, manifest,
+                        sources != null ? sources.cursor() : null, params)));
+            }
+            for (Map.Entry<String, Future<Boolean>> write : writes.entrySet()) {
+                try {
+                    if (write.getValue().get()) {
+                        written++;
+                    }
+                } catch (ExecutionException e) {
+                    printErrorMessage(FILE_WRITE_ERR + write.getKey() + POINT_S_B + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            params.getPools().release(executor, params.getMetrics());
+        }
+        return written;
+    }
+
+    /**
+     * Renders and writes the output file of one department, unless its content is unchanged.
+     * <p>
+     * If the manifest has an intact entry for the file, the department is first rendered
+     * into a {@link ContentHash} only, and nothing is written if the hash matches. Otherwise
+     * the content is rendered to a temporary file in the output directory, hashed on the
+     * way, and the temporary file is renamed over the department file. A department with
+     * spilled runs can be rendered only once, so its content is compared after rendering
+     * and the temporary file is discarded if it is unchanged.
+     * </p>
+     *
+     * @param dept            the department
+     * @param outputDirectory the output directory
+     * @param manifest        the manifest of the output directory
+     * @param cursor          cursor for copying source lines, or {@code null} to render every line
+     * @param params          command line parameters
+     * @return {@code true} if the file was written, {@code false} if it was unchanged
+     * @throws IOException if the file cannot be written
+     */
+    private static boolean writeDepartmentFile(Department dept,
+                                               Path outputDirectory,
+                                               OutputManifest manifest,
+                                               SourceFiles.Cursor cursor,
+                                               CommandLineArgsService params
+    ) throws IOException {
+        DepartmentWriteEvent event = new DepartmentWriteEvent();
+        event.begin();
+        Path file = outputDirectory.resolve(dept.getName() + POINT_S_B);
+        boolean intact = manifest.isIntact(dept.getName(), file);
+        boolean spilled = !dept.getSpilledRuns().getFiles().isEmpty();
+        if (intact && !spilled) {
+            ContentHash hash = new ContentHash();
+            try (RecordEncoder out = new RecordEncoder(null, LINE_SEPARATOR, hash)) {
+                renderDepartment(dept, out, cursor, params);
+            }
+            if (manifest.matches(dept.getName(), hash)) {
+                commitDepartmentWrite(event, dept, hash, false);
+                return false;
+            }
+        }
+
+        ContentHash hash = new ContentHash();
+        Path temp = outputDirectory.resolve(dept.getName() + POINT_S_B + TEMP_FILE_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 RecordEncoder out = new RecordEncoder(channel, LINE_SEPARATOR, hash)) {
+                renderDepartment(dept, out, cursor, params);
+            }
+            if (intact && spilled && manifest.matches(dept.getName(), hash)) {
+                commitDepartmentWrite(event, dept, hash, false);
+                return false;
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        manifest.put(dept.getName(), file, hash);
+        params.getMetrics().bytesWritten(hash.length());
+        commitDepartmentWrite(event, dept, hash, true);
+        return true;
+    }
+
+    /**
+     * Ends a department write event and commits it if it is enabled and above its threshold.
+     *
+     * @param event   the event begun before the department was rendered
+     * @param dept    the department
+     * @param hash    the hash of the rendered content
+     * @param written whether the file was written
+     */
+    private static void commitDepartmentWrite(DepartmentWriteEvent event, Department dept, ContentHash hash,
+                                              boolean written) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.department = dept.getName();
+            event.employees = dept.getEmployees().size() + dept.getSpilledRuns().getRowCount();
+            event.bytes = hash.length();
+            event.written = written;
+            event.commit();
+        }
+    }
+
+    /**
+     * Renders the output of one department.
+     * <p>
+     * Consecutive employees whose source lines follow each other in the same input
+     * file are copied as a single range. A department with spilled runs is written by
+     * merging the runs with the employees still in memory.
+     * </p>
+     *
+     * @param dept   the department
+     * @param out    the encoder to render to
+     * @param cursor cursor for copying source lines, or {@code null} to render every line
+     * @param params command line parameters
+     * @throws IOException if writing fails
+     */
+    private static void renderDepartment(Department dept,
+                                         RecordEncoder out,
+                                         SourceFiles.Cursor cursor,
+                                         CommandLineArgsService params
+    ) throws IOException {
+        int limit = params.getLimit() > 0 ? params.getLimit() : Integer.MAX_VALUE;
+        out.writeManager(dept.getManager());
+        EmployeeStore store = dept.getEmployees();
+        if (!dept.getSpilledRuns().getFiles().isEmpty()) {
+            try (RunMerger merger = new RunMerger(dept.getSpilledRuns(), store, params)) {
+                for (int written = 0; written < limit && merger.next(); written++) {
+                    out.writeEmployee(merger.store(), merger.row());
                 }
+            }
+            return;
+        }
+        int size = Math.min(store.size(), limit);
+        int i = 0;
+        while (i < size) {
+            long span = cursor != null ? store.getSource(i) : LineSpan.NONE;
+            if (span == LineSpan.NONE) {
+                out.writeEmployee(store, i++);
+                continue;
+            }
+            int fileIndex = LineSpan.fileIndex(span);
+            long start = LineSpan.offset(span);
+            long end = start + LineSpan.length(span);
+            for (i++; i < size; i++) {
+                long next = store.getSource(i);
+                if (next == LineSpan.NONE || LineSpan.fileIndex(next) != fileIndex || LineSpan.offset(next) != end) {
+                    break;
+                }
+                end += LineSpan.length(next);
+            }
+            cursor.copy(fileIndex, start, end - start, out);
+        }
+    }
+
+    /**
+     * Deletes the output files of departments that no longer exist.
+     *
+     * @param names  the department names
+     * @param params command line parameters
+     */
+    static void deleteOutputFiles(Collection<String> names, CommandLineArgsService params) {
+        Path outputDirectory = getPath(params);
+        if (outputDirectory == null) return;
+
+        OutputManifest manifest = OutputManifest.load(outputDirectory);
+        for (String name : names) {
+            try {
+                Files.deleteIfExists(outputDirectory.resolve(name + POINT_S_B));
+                manifest.remove(name);
             } catch (IOException e) {
-                printErrorMessage(FILE_WRITE_ERR + dept.getName() + POINT_S_B + e.getMessage());
+                printErrorMessage(FILE_WRITE_ERR + name + POINT_S_B + e.getMessage());
             }
         }
+        saveManifest(manifest);
+    }
+
+    /**
+     * Saves the manifest of the output directory.
+     *
+     * @param manifest the manifest
+     */
+    private static void saveManifest(OutputManifest manifest) {
+        try {
+            manifest.save();
+        } catch (IOException e) {
+            printErrorMessage(ERR_OUTPUT_MANIFEST + e.getMessage());
+        }
     }
 
+    /**
+     * Closes the input files opened for copying source lines.
+     *
+     * @param sources the input files, or {@code null}
+     */
+    private static void closeSources(SourceFiles sources) {
+        if (sources == null) {
+            return;
+        }
+        try {
+            sources.close();
+        } catch (IOException e) {
+            printErrorMessage(ERR_READ_INPUT_FILES + e.getMessage());
+        }
+    }
 
     /**
      * Writes error log to a file.
      *
      * @param errorLines list of error messages
+     * @param params     command line parameters
      */
-    public static void writeErrorLog(List<String> errorLines) {
+    public static void writeErrorLog(List<String> errorLines, CommandLineArgsService params) {
         if (!errorLines.isEmpty()) {
 
             try (BufferedWriter writer = Files.newBufferedWriter(
-                    Objects.requireNonNull(getPath()).resolve(ERROR_LOG),
+                    Objects.requireNonNull(getPath(params)).resolve(ERROR_LOG),
                     StandardOpenOption.CREATE,
                     StandardOpenOption.TRUNCATE_EXISTING
             )) {
@@ -89,82 +714,86 @@ public class FileService {
     }
 
     /**
-     * Processes each line of the input files.
+     * Processes each line of an input file as it is read.
+     *
+     * @param source           source positioned at the start of the file
+     * @param allManagersById  map to store managers
+     * @param allEmployeesById index to store employees
+     * @param errorLines       list to collect error messages
+     * @return the number of lines read
+     * @throws IOException if the file cannot be read
+     */
+    static long processLines(LineSource source,
+                             IdIndex<Manager> allManagersById,
+                             EmployeeIndex allEmployeesById,
+                             List<String> errorLines
+    ) throws IOException {
+        long lines = 0;
+        while (source.next()) {
+            source.process(allManagersById, allEmployeesById, errorLines);
+            lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * Processes a single line of an input file.
      *
-     * @param lines            list of lines from the file
+     * @param lineRaw          raw line from the file
      * @param allManagersById  map to store managers
-     * @param allEmployeesById map to store employees
+     * @param allEmployeesById index to store employees
      * @param errorLines       list to collect error messages
+     * @return the ID of the record on the line, or {@code null} if the line holds no record
      */
-    private static void processLines(List<String> lines,
-                                     Map<String, Manager> allManagersById,
-                                     Map<String, Employee> allEmployeesById,
-                                     List<String> errorLines
+    static String processLine(String lineRaw,
+                              IdIndex<Manager> allManagersById,
+                              EmployeeIndex allEmployeesById,
+                              List<String> errorLines
     ) {
-        for (String lineRaw : lines) {
-            String line = lineRaw.trim();
+        String line = lineRaw.trim();
 
-            if (line.isEmpty()) {
-                continue;
-            }
+        if (line.isEmpty()) {
+            return null;
+        }
 
-            String[] parts = line.split(CSV_DELIMITER, -1);
-            if (parts.length != 5) {
-                errorLines.add(lineRaw);
-                continue;
-            }
+        String[] parts = line.split(CSV_DELIMITER, -1);
+        if (parts.length != 5) {
+            errorLines.add(lineRaw);
+            return null;
+        }
 
-            String position = parts[0].trim();
-            String id = parts[1].trim();
-            String name = parts[2].trim();
-            String salaryStr = parts[3].trim();
-            String last = parts[4].trim();
+        String position = parts[0].trim();
+        String id = parts[1].trim();
+        String name = parts[2].trim();
+        double salary = SalaryService.parseSalary(parts[3].trim());
+        String last = parts[4].trim();
 
-            if (!isValidSalary(salaryStr)) {
-                errorLines.add(lineRaw);
+        if (!SalaryService.isValid(salary)) {
+            errorLines.add(lineRaw);
+        } else {
+            if (MANAGER.equalsIgnoreCase(position)) {
+                EmployeeService.createManager(id, name, salary, last, allManagersById, errorLines, lineRaw);
+            } else if (EMPLOYEE.equalsIgnoreCase(position)) {
+                EmployeeService.createEmployee(id, name, salary, allEmployeesById, errorLines, last, LineSpan.NONE);
             } else {
-                if (MANAGER.equalsIgnoreCase(position)) {
-                    EmployeeService.createManager(id, name, salaryStr, last, allManagersById, errorLines, lineRaw);
-                } else if (EMPLOYEE.equalsIgnoreCase(position)) {
-                    EmployeeService.createEmployee(id, name, salaryStr, allEmployeesById, errorLines, last);
-                } else {
-                    errorLines.add(lineRaw);
-                }
+                errorLines.add(lineRaw);
             }
         }
-    }
-
-    /**
-     * Checks whether the provided string is a valid salary value.
-     *
-     * <p>A valid salary value is a positive floating-point number.
-     * If the string cannot be parsed as a number or if the value
-     * is less than or equal to zero, the method returns {@code false}.</p>
-     *
-     * @param salaryStr the string representing the salary value
-     * @return {@code true} if the string contains a valid salary value,
-     * {@code false} otherwise
-     */
-    private static boolean isValidSalary(String salaryStr) {
-        try {
-            double salary = Double.parseDouble(salaryStr);
-            return salary > 0;
-        } catch (NumberFormatException e) {
-            return false;
-        }
+        return id;
     }
 
     /**
      * Retrieves the path to the output directory.
      * If the directory does not exist, it attempts to create it.
      *
+     * @param params command line parameters
      * @return the path to the output directory, or null if the directory could not be created.
      */
-    private static Path getPath() {
-        Path outputDirectory = Paths.get(OUTPUT);
+    private static Path getPath(CommandLineArgsService params) {
+        Path outputDirectory = params.getOutputDir();
         try {
             if (!Files.exists(outputDirectory)) {
-                Files.createDirectory(outputDirectory);
+                Files.createDirectories(outputDirectory);
             }
         } catch (IOException e) {
             printErrorMessage(ERR_CREATE_DIR + e.getMessage());
@@ -0,0 +1,148 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.exception.CustomIllArgException;
+import com.sigmaproject.model.enums.DistributionValue;
+import lombok.Getter;
+
+import java.util.Map;
+
+import static com.sigmaproject.utils.Constant.*;
+
+/**
+ * Service class for handling the command-line arguments of the dataset generator.
+ * <p>
+ * This class parses the generator options with the same syntax as
+ * {@link CommandLineArgsService}, validates them, and provides access to the dataset
+ * shape: the number of rows, departments and shard files, the department size
+ * distribution, the shares of noise lines and the seed.
+ * </p>
+ */
+@Getter
+public class GeneratorArgsService {
+
+    private int rows = 1000;
+    private int departments = 10;
+    private int shards = 1;
+    private String distribution = DistributionValue.UNIFORM.getValue();
+    private double zipfExponent = 1.0;
+    private double invalidSalaryRatio = 0;
+    private double duplicateManagerRatio = 0;
+    private double duplicateIdRatio = 0;
+    private double orphanRatio = 0;
+    private double whitespaceRatio = 0;
+    private long seed = 1;
+    private String dir = ".";
+
+    /**
+     * Constructs a GeneratorArgsService with the provided command-line arguments.
+     *
+     * @param args the command-line arguments to parse
+     * @throws CustomIllArgException if the arguments are invalid
+     */
+    public GeneratorArgsService(String[] args) throws CustomIllArgException {
+        Map<String, String> params = CommandLineArgsService.parseOptions(args);
+
+        if (params.containsKey(ROWS)) {
+            rows = CommandLineArgsService.parsePositiveInt(params.get(ROWS), INCORRECT_ROWS_PARAM);
+        }
+        if (params.containsKey(DEPARTMENTS)) {
+            departments = CommandLineArgsService.parsePositiveInt(params.get(DEPARTMENTS), INCORRECT_DEPARTMENTS_PARAM);
+        }
+        if (params.containsKey(SHARDS)) {
+            shards = CommandLineArgsService.parsePositiveInt(params.get(SHARDS), INCORRECT_SHARDS_PARAM);
+        }
+        if (params.containsKey(DISTRIBUTION)) {
+            distribution = params.get(DISTRIBUTION);
+        }
+        if (params.containsKey(ZIPF_EXPONENT)) {
+            zipfExponent = parsePositiveDouble(params.get(ZIPF_EXPONENT), INCORRECT_ZIPF_EXPONENT_PARAM);
+        }
+        invalidSalaryRatio = parseRatio(params, INVALID_SALARY_RATIO);
+        duplicateManagerRatio = parseRatio(params, DUPLICATE_MANAGER_RATIO);
+        duplicateIdRatio = parseRatio(params, DUPLICATE_ID_RATIO);
+        orphanRatio = parseRatio(params, ORPHAN_RATIO);
+        whitespaceRatio = parseRatio(params, WHITESPACE_RATIO);
+        if (params.containsKey(SEED)) {
+            try {
+                seed = Long.parseLong(params.get(SEED));
+            } catch (NumberFormatException e) {
+                throw new CustomIllArgException(INCORRECT_SEED_PARAM + params.get(SEED));
+            }
+        }
+        if (params.containsKey(DIR)) {
+            dir = params.get(DIR);
+        }
+        validate();
+    }
+
+    /**
+     * Checks whether departments get Zipf-skewed sizes.
+     *
+     * @return {@code true} for the Zipf distribution
+     */
+    public boolean isZipf() {
+        return DistributionValue.ZIPF.getValue().equals(distribution);
+    }
+
+    /**
+     * Validates the distribution and the shares of noise lines.
+     *
+     * @throws CustomIllArgException if the distribution is unknown or the shares of employee
+     * noise lines add up to more than one
+     */
+    private void validate() {
+        if (!distribution.equals(DistributionValue.UNIFORM.getValue())
+                && !distribution.equals(DistributionValue.ZIPF.getValue())) {
+            throw new CustomIllArgException(INCORRECT_DISTRIBUTION_PARAM + distribution);
+        }
+        if (invalidSalaryRatio + duplicateIdRatio + orphanRatio > 1) {
+            throw new CustomIllArgException(RATIO_SUM_ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Parses the value of a ratio parameter, which must lie between zero and one.
+     *
+     * @param params the parsed options
+     * @param key    the parameter
+     * @return the ratio, or zero if the parameter is not given
+     * @throws CustomIllArgException if the value is not a number between zero and one
+     */
+    private static double parseRatio(Map<String, String> params, String key) {
+        String value = params.get(key);
+        if (value == null) {
+            return 0;
+        }
+        double ratio;
+        try {
+            ratio = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new CustomIllArgException(INCORRECT_RATIO_PARAM + key + EQUALS + value);
+        }
+        if (!(ratio >= 0 && ratio <= 1)) {
+            throw new CustomIllArgException(INCORRECT_RATIO_PARAM + key + EQUALS + value);
+        }
+        return ratio;
+    }
+
+    /**
+     * Parses the value of a parameter that must be a positive number.
+     *
+     * @param value        the parameter value
+     * @param errorMessage the error message for an incorrect value
+     * @return the parsed value
+     * @throws CustomIllArgException if the value is not a positive number
+     */
+    private static double parsePositiveDouble(String value, String errorMessage) {
+        double result;
+        try {
+            result = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new CustomIllArgException(errorMessage + value);
+        }
+        if (!(result > 0) || Double.isInfinite(result)) {
+            throw new CustomIllArgException(errorMessage + value);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,204 @@
+package com.sigmaproject.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.sigmaproject.exception.CustomIllArgException.printErrorMessage;
+import static com.sigmaproject.utils.Constant.*;
+
+/**
+ * Service class for generating synthetic input datasets.
+ * <p>
+ * A dataset consists of one manager per department, the duplicate managers and
+ * {@code --rows} employee lines, spread over {@code --shards} .sb files of about equal
+ * length. Managers are scattered among the employees, so some employees are read before
+ * their manager, as in real inputs. Every employee picks its department from the chosen
+ * distribution: uniform, or Zipf-skewed, where the department of rank k gets a share
+ * proportional to 1 / k^s, which yields one giant department and a long tail of tiny
+ * ones. Noise lines are mixed in at the requested ratios: invalid salaries, reused
+ * employee IDs, employees of unknown managers, extra managers for existing departments
+ * and fields padded with whitespace. The same options and seed always produce the same files.
+ * </p>
+ */
+public class GeneratorService {
+
+    private static final String[] FIRST_NAMES = {
+            "Ann", "bob", "Carl", "dora", "Éva", "zed", "Oleh", "alan", "Марія", "José", "Spacey", "Li"
+    };
+    private static final String[] LAST_NAMES = {
+            "Smith", "Kovalenko", "brown", "Ølsen", "Lee", "de la Cruz", "User", "Nguyen", "Müller"
+    };
+    private static final String[] INVALID_SALARIES = {"n/a", "-1500", "0", "", "12.3.4", "abc"};
+
+    private static final int MIN_SALARY_CENTS = 100_000;
+    private static final int SALARY_CENTS_RANGE = 1_900_000;
+
+    /**
+     * Writes the shard files of a dataset.
+     *
+     * @param params the generator parameters
+     */
+    public static void generate(GeneratorArgsService params) {
+        try {
+            write(params);
+        } catch (IOException e) {
+            printErrorMessage(ERR_GENERATE + e.getMessage());
+        }
+    }
+
+    private static void write(GeneratorArgsService params) throws IOException {
+        Random random = new Random(params.getSeed());
+        int departments = params.getDepartments();
+        int managers = departments + (int) Math.round(departments * params.getDuplicateManagerRatio());
+        long[] managerOrder = scatterManagers(random, managers, params.getRows());
+        double[] cumulative = params.isZipf() ? zipfCumulative(departments, params.getZipfExponent()) : null;
+
+        Path dir = Paths.get(params.getDir());
+        Files.createDirectories(dir);
+        long lines = (long) params.getRows() + managers;
+        int shards = params.getShards();
+        String shardFormat = SHARD_FILE_PREFIX + "%0" + Math.max(2, String.valueOf(shards - 1).length()) + "d" + POINT_S_B;
+
+        long firstEmployeeId = managers + 1L;
+        long nextEmployeeId = firstEmployeeId;
+        int nextManager = 0;
+        long lineNo = 0;
+        int shard = -1;
+        BufferedWriter out = null;
+        try {
+            for (int row = 0; row <= params.getRows(); row++) {
+                while (nextManager < managers && (int) (managerOrder[nextManager] >>> 32) == row) {
+                    if (shardOf(lineNo, lines, shards) != shard) {
+                        shard = shardOf(lineNo, lines, shards);
+                        out = reopen(out, dir.resolve(String.format(shardFormat, shard)));
+                    }
+                    int manager = (int) managerOrder[nextManager++];
+                    writeManager(out, random, manager, departments, params);
+                    lineNo++;
+                }
+                if (row == params.getRows()) {
+                    break;
+                }
+                if (shardOf(lineNo, lines, shards) != shard) {
+                    shard = shardOf(lineNo, lines, shards);
+                    out = reopen(out, dir.resolve(String.format(shardFormat, shard)));
+                }
+                long id = nextEmployeeId;
+                String salary = salary(random);
+                String managerId = Integer.toString(department(random, departments, cumulative) + 1);
+                double r = random.nextDouble();
+                if (r < params.getInvalidSalaryRatio()) {
+                    salary = INVALID_SALARIES[random.nextInt(INVALID_SALARIES.length)];
+                    nextEmployeeId++;
+                } else if (r < params.getInvalidSalaryRatio() + params.getDuplicateIdRatio() && id > firstEmployeeId) {
+                    id = firstEmployeeId + (long) (random.nextDouble() * (nextEmployeeId - firstEmployeeId));
+                } else if (r < params.getInvalidSalaryRatio() + params.getDuplicateIdRatio() + params.getOrphanRatio()) {
+                    managerId = Long.toString(managers + 1L + random.nextInt(Integer.MAX_VALUE));
+                    nextEmployeeId++;
+                } else {
+                    nextEmployeeId++;
+                }
+                writeLine(out, random, params, EMPLOYEE, Long.toString(id), name(random), salary, managerId);
+                lineNo++;
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Places the manager lines among the employee lines.
+     *
+     * @return for every manager, ordered by position, the number of employee lines before
+     * it in the upper half and the manager index in the lower half
+     */
+    private static long[] scatterManagers(Random random, int managers, int rows) {
+        long[] order = new long[managers];
+        for (int m = 0; m < managers; m++) {
+            order[m] = (long) random.nextInt(rows + 1) << 32 | m;
+        }
+        Arrays.sort(order);
+        return order;
+    }
+
+    /**
+     * Computes the cumulative Zipf weights of the departments by rank.
+     */
+    private static double[] zipfCumulative(int departments, double exponent) {
+        double[] cumulative = new double[departments];
+        double sum = 0;
+        for (int k = 0; k < departments; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Picks the index of a department, uniformly or from the cumulative weights.
+     */
+    private static int department(Random random, int departments, double[] cumulative) {
+        if (cumulative == null) {
+            return random.nextInt(departments);
+        }
+        int i = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[departments - 1]);
+        return Math.min(i >= 0 ? i : -i - 1, departments - 1);
+    }
+
+    private static int shardOf(long lineNo, long lines, int shards) {
+        return (int) (lineNo * shards / lines);
+    }
+
+    private static BufferedWriter reopen(BufferedWriter out, Path file) throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the manager with the given index: the owner of a department for the first
+     * indexes, an extra manager of a random department after them.
+     */
+    private static void writeManager(BufferedWriter out, Random random, int manager, int departments,
+                                     GeneratorArgsService params) throws IOException {
+        int department = manager < departments ? manager : random.nextInt(departments);
+        writeLine(out, random, params, MANAGER, Integer.toString(manager + 1), name(random), salary(random),
+                "Department " + (department + 1));
+    }
+
+    /**
+     * Writes a record line, padding the fields with whitespace at the whitespace ratio.
+     */
+    private static void writeLine(BufferedWriter out, Random random, GeneratorArgsService params,
+                                  String position, String id, String name, String salary, String last)
+            throws IOException {
+        if (random.nextDouble() < params.getWhitespaceRatio()) {
+            out.write("  " + position + CSV_DELIMITER + id + CSV_DELIMITER + " " + name + " " + CSV_DELIMITER + " "
+                    + salary + " " + CSV_DELIMITER + " " + last + "\t");
+        } else {
+            out.write(position + CSV_DELIMITER + id + CSV_DELIMITER + name + CSV_DELIMITER + salary + CSV_DELIMITER + last);
+        }
+        out.newLine();
+    }
+
+    private static String name(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private static String salary(Random random) {
+        int cents = MIN_SALARY_CENTS + random.nextInt(SALARY_CENTS_RANGE);
+        if (random.nextBoolean()) {
+            return Integer.toString(cents / 100);
+        }
+        return cents / 100 + "." + cents % 100 / 10 + cents % 10;
+    }
+}
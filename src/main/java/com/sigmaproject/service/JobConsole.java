@@ -0,0 +1,120 @@
+package com.sigmaproject.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Routes the console output of daemon jobs to their clients.
+ * <p>
+ * The services print statistics and error messages to {@link System#out} and
+ * {@link System#err}. Once {@link #install()} has run, both streams forward what a
+ * thread prints to the streams {@link #attach attached} to that thread, or to the
+ * original console if none are attached. Tasks that a job submits to the shared worker
+ * pools are {@link #bind bound} to the streams of the job, so the worker threads print
+ * to the job's client as well. Fork-join stages print nothing; their failures reach the
+ * job thread as exceptions.
+ * </p>
+ */
+final class JobConsole {
+
+    private static final ThreadLocal<OutputStream[]> TARGETS = new ThreadLocal<>();
+
+    private static boolean installed;
+
+    private JobConsole() {
+    }
+
+    /**
+     * Replaces {@link System#out} and {@link System#err} with routing streams.
+     */
+    static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        System.setOut(new PrintStream(new Route(0, System.out), true));
+        System.setErr(new PrintStream(new Route(1, System.err), true));
+        installed = true;
+    }
+
+    /**
+     * Sends the console output of the calling thread to the given streams.
+     *
+     * @param out the stream for standard output
+     * @param err the stream for standard error
+     */
+    static void attach(OutputStream out, OutputStream err) {
+        TARGETS.set(new OutputStream[]{out, err});
+    }
+
+    /**
+     * Sends the console output of the calling thread to the original console again.
+     */
+    static void detach() {
+        System.out.flush();
+        System.err.flush();
+        TARGETS.remove();
+    }
+
+    /**
+     * Returns a task that runs with the streams attached to the calling thread, so that
+     * a worker thread running it prints to the job that submitted it. The streams that
+     * were attached to the worker thread before are attached again afterwards.
+     *
+     * @param task the task
+     * @return the bound task, or the task itself if no streams are attached to the calling thread
+     */
+    static Runnable bind(Runnable task) {
+        OutputStream[] targets = TARGETS.get();
+        if (targets == null) {
+            return task;
+        }
+        return () -> {
+            OutputStream[] previous = TARGETS.get();
+            TARGETS.set(targets);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    TARGETS.set(previous);
+                } else {
+                    TARGETS.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * One routed console stream.
+     */
+    private static final class Route extends OutputStream {
+
+        private final int channel;
+        private final OutputStream console;
+
+        Route(int channel, OutputStream console) {
+            this.channel = channel;
+            this.console = console;
+        }
+
+        private OutputStream target() {
+            OutputStream[] targets = TARGETS.get();
+            return targets != null ? targets[channel] : console;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+}
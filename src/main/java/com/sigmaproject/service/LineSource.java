@@ -0,0 +1,49 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.EmployeeIndex;
+import com.sigmaproject.model.Manager;
+import com.sigmaproject.utils.IdIndex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sequential source of the lines of one input file.
+ * <p>
+ * A source is advanced line by line with {@link #next()} and parses the current line
+ * with {@link #process(IdIndex, EmployeeIndex, List)} using the same rules for every implementation.
+ * </p>
+ */
+interface LineSource extends Closeable {
+
+    /**
+     * Advances to the next line.
+     *
+     * @return {@code true} if there is a current line, {@code false} at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Parses the current line and registers the record it holds.
+     *
+     * @param allManagersById  map to store managers
+     * @param allEmployeesById index to store employees
+     * @param errorLines       list to collect error messages
+     * @return the ID of the record on the line, or {@code null} if the line holds no record
+     * @throws IOException if the line cannot be decoded
+     */
+    String process(IdIndex<Manager> allManagersById,
+                   EmployeeIndex allEmployeesById,
+                   List<String> errorLines
+    ) throws IOException;
+
+    /**
+     * Returns the current line as it appears in the file.
+     *
+     * @return the raw current line
+     * @throws IOException if the line cannot be decoded
+     */
+    String lineRaw() throws IOException;
+}
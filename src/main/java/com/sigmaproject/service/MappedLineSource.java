@@ -0,0 +1,380 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.EmployeeIndex;
+import com.sigmaproject.model.Manager;
+import com.sigmaproject.utils.IdIndex;
+import com.sigmaproject.utils.LineSpan;
+import com.sigmaproject.utils.Money;
+import com.sigmaproject.utils.SalaryFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static com.sigmaproject.utils.Constant.EMPLOYEE;
+import static com.sigmaproject.utils.Constant.MANAGER;
+
+/**
+ * Line source that memory-maps the file and tokenizes records straight from the bytes.
+ * <p>
+ * The file is mapped in windows, so files larger than 2 GB are supported. Lines that
+ * contain only ASCII bytes are trimmed and split without decoding them; strings are
+ * created only for the fields a record keeps and for lines that end up in the error log,
+ * and the salary is parsed into cents without creating a string at all.
+ * Lines with other bytes are decoded as UTF-8 and parsed by {@link FileService#processLine}.
+ * Line breaks are recognized the same way {@link java.io.BufferedReader#readLine()} does.
+ * </p>
+ * <p>
+ * When a passthrough line separator is given, every employee line that is byte for byte
+ * the output form of the employee, followed by that separator, is tagged with its
+ * {@link LineSpan} so that the writer can copy it instead of rendering it again.
+ * </p>
+ */
+class MappedLineSource implements LineSource {
+
+    /**
+     * Default size of a mapped window of the file.
+     */
+    private static final long WINDOW_SIZE = 64L << 20;
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte COMMA = ',';
+    private static final byte SPACE = ' ';
+
+    private static final byte[] MANAGER_BYTES = MANAGER.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPLOYEE_BYTES = EMPLOYEE.getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final long size;
+    private final int fileIndex;
+    private final byte[] passthroughSeparator;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean asciiLine;
+    private String lineRaw;
+
+    /**
+     * Span of the current line including its line break, or {@link LineSpan#NONE}
+     * if the line break is not the passthrough separator.
+     */
+    private long lineSpan;
+
+    /**
+     * Whether a field of the current line has surrounding whitespace.
+     */
+    private boolean padded;
+
+    private final byte[] salaryBytes = new byte[SalaryFormat.MAX_FAST_LENGTH];
+
+    /**
+     * Bounds of the five trimmed fields of the current line as start/end pairs.
+     */
+    private final int[] fields = new int[10];
+
+    /**
+     * Opens and maps the given file.
+     *
+     * @param path                 the file to read
+     * @param fileIndex            position of the file in the input file list
+     * @param passthroughSeparator the output line separator if records should be tagged
+     *                             with their source spans, {@code null} otherwise
+     * @throws IOException if the file cannot be opened
+     */
+    MappedLineSource(Path path, int fileIndex, byte[] passthroughSeparator) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.fileIndex = fileIndex;
+        this.passthroughSeparator = passthroughSeparator;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        lineRaw = null;
+        asciiLine = false;
+        lineSpan = LineSpan.NONE;
+        if (position >= size) {
+            return false;
+        }
+
+        long windowSize = WINDOW_SIZE;
+        if (window == null || position >= windowStart + window.limit()) {
+            map(windowSize);
+        }
+        while (true) {
+            int from = (int) (position - windowStart);
+            int limit = window.limit();
+            int i = from;
+            while (i < limit) {
+                byte b = window.get(i);
+                if (b == LF || b == CR) {
+                    break;
+                }
+                i++;
+            }
+
+            boolean lastWindow = windowStart + limit == size;
+            boolean split = i == limit || (i == limit - 1 && window.get(i) == CR);
+            if (split && !lastWindow) {
+                // The line or its line break runs past the window: map again from the line start.
+                if (from == 0) {
+                    windowSize *= 2;
+                    if (windowSize > Integer.MAX_VALUE) {
+                        throw new IOException("Line is too long at offset " + position);
+                    }
+                }
+                map(windowSize);
+                continue;
+            }
+
+            lineLength = i - from;
+            if (line.length < lineLength) {
+                line = new byte[Math.max(lineLength, line.length * 2)];
+            }
+            window.position(from);
+            window.get(line, 0, lineLength);
+
+            long nextPosition = windowStart + i;
+            if (i < limit) {
+                nextPosition++;
+                if (window.get(i) == CR && i + 1 < limit && window.get(i + 1) == LF) {
+                    nextPosition++;
+                }
+            }
+            if (passthroughSeparator != null && endsWithSeparator(i, (int) (nextPosition - windowStart))) {
+                lineSpan = LineSpan.of(fileIndex, position, (int) (nextPosition - position));
+            }
+            position = nextPosition;
+            return true;
+        }
+    }
+
+    @Override
+    public String process(IdIndex<Manager> allManagersById,
+                          EmployeeIndex allEmployeesById,
+                          List<String> errorLines
+    ) throws IOException {
+        for (int i = 0; i < lineLength; i++) {
+            if (line[i] < 0) {
+                return FileService.processLine(lineRaw(), allManagersById, allEmployeesById, errorLines);
+            }
+        }
+        asciiLine = true;
+
+        int start = 0;
+        int end = lineLength;
+        while (start < end && line[start] <= SPACE) {
+            start++;
+        }
+        while (end > start && line[end - 1] <= SPACE) {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        padded = start != 0 || end != lineLength;
+        int field = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || line[i] == COMMA) {
+                if (field == 5) {
+                    errorLines.add(lineRaw());
+                    return null;
+                }
+                int s = fieldStart;
+                int e = i;
+                while (s < e && line[s] <= SPACE) {
+                    s++;
+                }
+                while (e > s && line[e - 1] <= SPACE) {
+                    e--;
+                }
+                padded |= s != fieldStart || e != i;
+                fields[2 * field] = s;
+                fields[2 * field + 1] = e;
+                field++;
+                fieldStart = i + 1;
+            }
+        }
+        if (field != 5) {
+            errorLines.add(lineRaw());
+            return null;
+        }
+
+        double salary = parseSalary();
+        if (!SalaryService.isValid(salary)) {
+            errorLines.add(lineRaw());
+            return null;
+        }
+        if (fieldEqualsIgnoreCase(0, MANAGER_BYTES)) {
+            String id = ascii(1);
+            EmployeeService.createManager(id, ascii(2), salary, ascii(4), allManagersById, errorLines, lineRaw());
+            return id;
+        } else if (fieldEqualsIgnoreCase(0, EMPLOYEE_BYTES)) {
+            String id = ascii(1);
+            EmployeeService.createEmployee(id, ascii(2), salary, allEmployeesById, errorLines, ascii(4),
+                    passthroughSpan(salary));
+            return id;
+        }
+        errorLines.add(lineRaw());
+        return null;
+    }
+
+    @Override
+    public String lineRaw() throws IOException {
+        if (lineRaw == null) {
+            lineRaw = asciiLine
+                    ? new String(line, 0, lineLength, StandardCharsets.ISO_8859_1)
+                    : decoder.decode(ByteBuffer.wrap(line, 0, lineLength)).toString();
+        }
+        return lineRaw;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Maps a window of the file that starts at the current position.
+     *
+     * @param windowSize the desired window size
+     * @throws IOException if the file cannot be mapped
+     */
+    private void map(long windowSize) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+    }
+
+    /**
+     * Checks whether the bytes between the end of the current line and the next line
+     * are exactly the passthrough separator.
+     *
+     * @param lineEnd   window index of the end of the line
+     * @param nextStart window index of the start of the next line
+     * @return {@code true} if the line break is the passthrough separator
+     */
+    private boolean endsWithSeparator(int lineEnd, int nextStart) {
+        if (nextStart - lineEnd != passthroughSeparator.length) {
+            return false;
+        }
+        for (int k = 0; k < passthroughSeparator.length; k++) {
+            if (window.get(lineEnd + k) != passthroughSeparator[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the span of the current employee line if the writer can copy it unchanged:
+     * the line has no surrounding whitespace, the record type is spelled exactly and the
+     * salary is written the way the writer formats it.
+     *
+     * @param salary the parsed salary
+     * @return the span of the line, or {@link LineSpan#NONE}
+     */
+    private long passthroughSpan(double salary) {
+        if (lineSpan == LineSpan.NONE || padded || !fieldEquals(0, EMPLOYEE_BYTES)) {
+            return LineSpan.NONE;
+        }
+        int length = SalaryFormat.encode(salary, salaryBytes, 0);
+        int start = fields[6];
+        if (length != fields[7] - start) {
+            return LineSpan.NONE;
+        }
+        for (int k = 0; k < length; k++) {
+            if (line[start + k] != salaryBytes[k]) {
+                return LineSpan.NONE;
+            }
+        }
+        return lineSpan;
+    }
+
+    /**
+     * Parses the salary field of the current line straight from the bytes.
+     *
+     * @return the parsed salary, or {@link Double#NaN} if it is not a positive number
+     */
+    private double parseSalary() {
+        long cents = Money.parseCents(line, fields[6], fields[7]);
+        if (cents > 0) {
+            return Money.toDouble(cents);
+        }
+        return cents == Money.INEXACT ? SalaryService.parseInexactSalary(ascii(3)) : Double.NaN;
+    }
+
+    /**
+     * Creates a string from an ASCII field of the current line.
+     *
+     * @param field index of the field
+     * @return the field as a string
+     */
+    private String ascii(int field) {
+        int start = fields[2 * field];
+        return new String(line, start, fields[2 * field + 1] - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Compares an ASCII field of the current line with the given ASCII word ignoring case.
+     *
+     * @param field index of the field
+     * @param word  the word to compare with
+     * @return {@code true} if the field equals the word ignoring case
+     */
+    private boolean fieldEqualsIgnoreCase(int field, byte[] word) {
+        int start = fields[2 * field];
+        if (fields[2 * field + 1] - start != word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            byte a = line[start + i];
+            byte b = word[i];
+            if (a != b && toLowerAscii(a) != toLowerAscii(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares an ASCII field of the current line with the given ASCII word.
+     *
+     * @param field index of the field
+     * @param word  the word to compare with
+     * @return {@code true} if the field equals the word
+     */
+    private boolean fieldEquals(int field, byte[] word) {
+        int start = fields[2 * field];
+        if (fields[2 * field + 1] - start != word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (line[start + i] != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte toLowerAscii(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+}
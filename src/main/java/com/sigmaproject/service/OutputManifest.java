@@ -0,0 +1,165 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.utils.ContentHash;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.sigmaproject.utils.Constant.OUTPUT_MANIFEST;
+
+/**
+ * Sidecar manifest of the department files in the output directory.
+ * <p>
+ * For every department file the manifest records the {@link ContentHash} and length of
+ * the content last written, and the modification time the file got. A department file
+ * whose rendered content has the recorded hash and length is not written again, provided
+ * the file still has the recorded length and modification time, that is, it was not
+ * changed since. A missing or damaged manifest is treated as empty, so every file is
+ * written and the manifest is rebuilt. Entries may be added from several writing threads.
+ * </p>
+ */
+final class OutputManifest {
+
+    private static final int MAGIC = 0x53424d01;
+    private static final int FORMAT_VERSION = 1;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    private final Path directory;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private OutputManifest(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the manifest of an output directory.
+     *
+     * @param directory the output directory
+     * @return the manifest, empty if there is no readable manifest
+     */
+    static OutputManifest load(Path directory) {
+        OutputManifest manifest = new OutputManifest(directory);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(directory.resolve(OUTPUT_MANIFEST)), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return manifest;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                manifest.entries.put(in.readUTF(), new Entry(in.readLong(), in.readLong(), in.readLong()));
+            }
+        } catch (NoSuchFileException e) {
+            return manifest;
+        } catch (IOException e) {
+            // A damaged manifest is rebuilt from scratch.
+            manifest.entries.clear();
+        }
+        return manifest;
+    }
+
+    /**
+     * Checks whether a department file can be verified against its recorded content,
+     * that is, it has an entry and was not changed since it was written.
+     *
+     * @param name the department name
+     * @param file the department file
+     * @return {@code true} if rendering the department again may be compared with the entry
+     */
+    boolean isIntact(String name, Path file) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            return false;
+        }
+        try {
+            return Files.size(file) == entry.length && Files.getLastModifiedTime(file).toMillis() == entry.modified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether rendered content equals the content recorded for a department.
+     *
+     * @param name the department name
+     * @param hash the hash of the rendered content
+     * @return {@code true} if the hash and length match the entry
+     */
+    boolean matches(String name, ContentHash hash) {
+        Entry entry = entries.get(name);
+        return entry != null && entry.hash == hash.value() && entry.length == hash.length();
+    }
+
+    /**
+     * Records the content just written to a department file.
+     *
+     * @param name the department name
+     * @param file the department file
+     * @param hash the hash of the written content
+     * @throws IOException if the modification time of the file cannot be read
+     */
+    void put(String name, Path file, ContentHash hash) throws IOException {
+        entries.put(name, new Entry(hash.value(), hash.length(), Files.getLastModifiedTime(file).toMillis()));
+    }
+
+    /**
+     * Forgets the entry of a department file that was deleted.
+     *
+     * @param name the department name
+     */
+    void remove(String name) {
+        entries.remove(name);
+    }
+
+    /**
+     * Writes the manifest to a temporary file and renames it into place.
+     *
+     * @throws IOException if the manifest cannot be written
+     */
+    void save() throws IOException {
+        Path temp = Files.createTempFile(directory, OUTPUT_MANIFEST, TEMP_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeLong(e.getValue().hash);
+                    out.writeLong(e.getValue().length);
+                    out.writeLong(e.getValue().modified);
+                }
+            }
+            Files.move(temp, directory.resolve(OUTPUT_MANIFEST),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The recorded content of a department file.
+     */
+    private static final class Entry {
+
+        final long hash;
+        final long length;
+        final long modified;
+
+        Entry(long hash, long length, long modified) {
+            this.hash = hash;
+            this.length = length;
+            this.modified = modified;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.EmployeeStore;
+import com.sigmaproject.model.Manager;
+import com.sigmaproject.service.FileParseBuffer.Ranked;
+import com.sigmaproject.utils.LineSpan;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk cache of parsed input files.
+ * <p>
+ * For every input file the cache keeps one entry with the file's {@link FileParseBuffer}:
+ * the accepted managers and employees and the error lines, each with its line number, in
+ * a compact binary form. An entry is keyed by the absolute path, size, modification time
+ * and CRC32C content hash of the file, taken before the file was parsed, and is used only
+ * if all four still match, so an unchanged file is loaded without parsing any text.
+ * Entries written with another {@link #FORMAT_VERSION} or another passthrough mode are
+ * ignored and rebuilt. Entries are written to a temporary file and renamed into place,
+ * so a reader never sees a partial entry.
+ * </p>
+ */
+final class ParseCache {
+
+    /**
+     * Version of the entry format; entries of any other version are rebuilt.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x53424301;
+    private static final String ENTRY_SUFFIX = ".cache";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    private final Path directory;
+    private final boolean passthrough;
+
+    /**
+     * Constructs a cache in the given directory.
+     *
+     * @param directory   the cache directory, created when the first entry is written
+     * @param passthrough whether employees carry the source spans of passthrough lines
+     */
+    ParseCache(Path directory, boolean passthrough) {
+        this.directory = directory;
+        this.passthrough = passthrough;
+    }
+
+    /**
+     * Deletes all entries.
+     *
+     * @throws IOException if an entry cannot be deleted
+     */
+    void clear() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            for (Path entry : entries) {
+                Files.deleteIfExists(entry);
+            }
+        }
+    }
+
+    /**
+     * Takes the fingerprint of an input file.
+     *
+     * @param file the input file
+     * @return the fingerprint
+     * @throws IOException if the file cannot be read
+     */
+    Fingerprint fingerprint(Path file) throws IOException {
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        return new Fingerprint(file.toAbsolutePath().normalize().toString(), size, modified, contentHash(file));
+    }
+
+    /**
+     * Loads the parse result of a file if the cache holds a valid entry for it.
+     *
+     * @param file        the input file
+     * @param fileIndex   position of the file in the sorted input file list
+     * @param fingerprint the current fingerprint of the file
+     * @return the parse result, or {@code null} if there is no valid entry
+     */
+    FileParseBuffer load(Path file, int fileIndex, Fingerprint fingerprint) {
+        try (FileChannel channel = FileChannel.open(entryOf(file), StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            EntryReader reader = new EntryReader(in);
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION || (in.get() != 0) != passthrough) {
+                return null;
+            }
+            if (!fingerprint.path.equals(reader.string()) || in.getLong() != fingerprint.size
+                    || in.getLong() != fingerprint.modified || in.getLong() != fingerprint.hash) {
+                return null;
+            }
+            return readBuffer(reader, fileIndex);
+        } catch (IOException | RuntimeException e) {
+            // A missing or damaged entry is rebuilt like an outdated one.
+            return null;
+        }
+    }
+
+    /**
+     * Writes the parse result of a file.
+     *
+     * @param file        the input file
+     * @param fingerprint the fingerprint of the file taken before it was parsed
+     * @param buffer      the parse result
+     * @throws IOException if the entry cannot be written
+     */
+    void store(Path file, Fingerprint fingerprint, FileParseBuffer buffer) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeBoolean(passthrough);
+                writeString(out, fingerprint.path);
+                out.writeLong(fingerprint.size);
+                out.writeLong(fingerprint.modified);
+                out.writeLong(fingerprint.hash);
+                writeBuffer(out, buffer);
+            }
+            Files.move(temp, entryOf(file), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path entryOf(Path file) {
+        return directory.resolve(file.getFileName().toString() + ENTRY_SUFFIX);
+    }
+
+    private static void writeBuffer(DataOutputStream out, FileParseBuffer buffer) throws IOException {
+        out.writeInt(buffer.managers.size());
+        for (Ranked<Manager> r : buffer.managers) {
+            Manager m = r.value;
+            out.writeInt(r.lineNo);
+            writeString(out, m.getId());
+            writeString(out, m.getName());
+            out.writeDouble(m.getSalary());
+            writeString(out, m.getDepartment());
+            writeString(out, r.lineRaw);
+        }
+        EmployeeStore rows = buffer.employees.getRows();
+        out.writeInt(rows.size());
+        for (int row = 0; row < rows.size(); row++) {
+            out.writeInt(buffer.employeeLines[row]);
+            writeString(out, rows.getId(row));
+            writeString(out, rows.getName(row));
+            out.writeDouble(rows.getSalary(row));
+            writeString(out, rows.getManagerId(row));
+            long source = rows.getSource(row);
+            out.writeLong(source == LineSpan.NONE ? -1 : LineSpan.offset(source));
+            out.writeInt(source == LineSpan.NONE ? 0 : LineSpan.length(source));
+        }
+        out.writeInt(buffer.errors.size());
+        for (Ranked<String> r : buffer.errors) {
+            out.writeInt(r.lineNo);
+            writeString(out, r.value);
+        }
+    }
+
+    private static FileParseBuffer readBuffer(EntryReader reader, int fileIndex) {
+        ByteBuffer in = reader.in;
+        FileParseBuffer buffer = new FileParseBuffer(fileIndex);
+        int managers = in.getInt();
+        for (int i = 0; i < managers; i++) {
+            int lineNo = in.getInt();
+            Manager m = new Manager(reader.string(), reader.string(), in.getDouble(), reader.string());
+            buffer.managers.add(new Ranked<>(fileIndex, lineNo, m, reader.string()));
+        }
+        int employees = in.getInt();
+        for (int i = 0; i < employees; i++) {
+            int lineNo = in.getInt();
+            String id = reader.string();
+            String name = reader.string();
+            double salary = in.getDouble();
+            String managerId = reader.string();
+            long offset = in.getLong();
+            int length = in.getInt();
+            long source = offset < 0 ? LineSpan.NONE : LineSpan.of(fileIndex, offset, length);
+            buffer.employees.add(id, name, salary, managerId, source);
+            buffer.addEmployeeLine(lineNo);
+        }
+        int errors = in.getInt();
+        for (int i = 0; i < errors; i++) {
+            int lineNo = in.getInt();
+            buffer.errors.add(new Ranked<>(fileIndex, lineNo, reader.string(), null));
+        }
+        return buffer;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Decodes the strings of a mapped entry through a reusable scratch array.
+     */
+    private static final class EntryReader {
+
+        final ByteBuffer in;
+        private byte[] scratch = new byte[256];
+
+        EntryReader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        String string() {
+            int length = in.getInt();
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            in.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static long contentHash(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * The key of a cache entry.
+     */
+    static final class Fingerprint {
+
+        final String path;
+        final long size;
+        final long modified;
+        final long hash;
+
+        Fingerprint(String path, long size, long modified, long hash) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.EmployeeIndex;
+import com.sigmaproject.model.Manager;
+import com.sigmaproject.utils.IdIndex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Line source that decodes the file through a buffered reader.
+ */
+class ReaderLineSource implements LineSource {
+
+    private final BufferedReader reader;
+    private String line;
+
+    /**
+     * Opens the given file for reading.
+     *
+     * @param path the file to read
+     * @throws IOException if the file cannot be opened
+     */
+    ReaderLineSource(Path path) throws IOException {
+        this.reader = Files.newBufferedReader(path);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        line = reader.readLine();
+        return line != null;
+    }
+
+    @Override
+    public String process(IdIndex<Manager> allManagersById,
+                          EmployeeIndex allEmployeesById,
+                          List<String> errorLines
+    ) {
+        return FileService.processLine(line, allManagersById, allEmployeesById, errorLines);
+    }
+
+    @Override
+    public String lineRaw() {
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,260 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.EmployeeStore;
+import com.sigmaproject.model.Manager;
+import com.sigmaproject.utils.ContentHash;
+import com.sigmaproject.utils.SalaryFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import static com.sigmaproject.utils.Constant.CSV_DELIMITER;
+import static com.sigmaproject.utils.Constant.EMPLOYEE;
+import static com.sigmaproject.utils.Constant.MANAGER;
+
+/**
+ * Buffered stream that encodes output records straight into its buffer.
+ * <p>
+ * Records are written in the same format as {@link Manager#toString()} and
+ * {@link com.sigmaproject.model.Employee#toString()}, but strings are encoded to UTF-8
+ * in place and salaries are formatted by {@link SalaryFormat} into the buffer, so
+ * writing a record creates no objects. Source lines that need no rendering can be
+ * copied in as raw bytes. Every byte written out can be added to a {@link ContentHash};
+ * an encoder without a target file only computes the hash.
+ * </p>
+ */
+class RecordEncoder extends BufferedOutputStream {
+
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    private static final byte[] MANAGER_PREFIX = (MANAGER + CSV_DELIMITER).getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EMPLOYEE_PREFIX = (EMPLOYEE + CSV_DELIMITER).getBytes(StandardCharsets.UTF_8);
+    private static final byte COMMA = (byte) CSV_DELIMITER.charAt(0);
+
+    /**
+     * Longest UTF-8 encoding of a single char or surrogate pair.
+     */
+    private static final int MAX_CHAR_BYTES = 4;
+
+    private final FileChannel target;
+    private final byte[] lineSeparator;
+    private final ContentHash hash;
+
+    /**
+     * Creates an encoder writing to the given file.
+     *
+     * @param target        the file to write to, or {@code null} to only compute the hash
+     * @param lineSeparator the encoded line separator written after every record
+     * @param hash          the hash to add the written bytes to, or {@code null}
+     */
+    RecordEncoder(FileChannel target, byte[] lineSeparator, ContentHash hash) {
+        super(new HashingStream(target != null ? Channels.newOutputStream(target) : null, hash), BUFFER_SIZE);
+        this.target = target;
+        this.lineSeparator = lineSeparator;
+        this.hash = hash;
+    }
+
+    /**
+     * Writes a manager record followed by a line separator.
+     *
+     * @param manager the manager
+     * @throws IOException if writing fails
+     */
+    void writeManager(Manager manager) throws IOException {
+        write(MANAGER_PREFIX);
+        writeString(manager.getId());
+        writeByte(COMMA);
+        writeString(manager.getName());
+        writeByte(COMMA);
+        writeSalary(manager.getSalary());
+        write(lineSeparator);
+    }
+
+    /**
+     * Writes the employee record at the given row of a store followed by a line separator.
+     *
+     * @param store the employee store
+     * @param row   position of the employee in the store
+     * @throws IOException if writing fails
+     */
+    void writeEmployee(EmployeeStore store, int row) throws IOException {
+        write(EMPLOYEE_PREFIX);
+        store.writeId(row, this);
+        writeByte(COMMA);
+        store.writeName(row, this);
+        writeByte(COMMA);
+        writeSalary(store.getSalary(row));
+        writeByte(COMMA);
+        store.writeManagerId(row, this);
+        write(lineSeparator);
+    }
+
+    /**
+     * Copies bytes from a buffer, for example a mapped input file, into the output.
+     *
+     * @param source the buffer to copy from; its position is changed
+     * @param index  index of the first byte to copy
+     * @param length number of bytes to copy
+     * @throws IOException if writing fails
+     */
+    void copyFrom(ByteBuffer source, int index, int length) throws IOException {
+        source.position(index);
+        while (length > 0) {
+            reserve(Math.min(length, buf.length));
+            int chunk = Math.min(length, buf.length - count);
+            source.get(buf, count, chunk);
+            count += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Transfers bytes of a file into the output without copying them through the heap.
+     * If the bytes are hashed, they are hashed from the mapping of the file before the
+     * kernel transfers them; a file that is not mapped is copied through the buffer instead.
+     *
+     * @param source   the file to copy from
+     * @param mapped   the mapping of the whole file, or {@code null}; its position and limit are changed
+     * @param position position of the first byte to copy
+     * @param length   number of bytes to copy
+     * @throws IOException if reading or writing fails
+     */
+    void transferFrom(FileChannel source, ByteBuffer mapped, long position, long length) throws IOException {
+        flush();
+        if (mapped == null && (hash != null || target == null)) {
+            while (length > 0) {
+                int read = source.read(ByteBuffer.wrap(buf, 0, (int) Math.min(length, buf.length)), position);
+                if (read <= 0) {
+                    throw new IOException("Unexpected end of input file at offset " + position);
+                }
+                out.write(buf, 0, read);
+                position += read;
+                length -= read;
+            }
+            return;
+        }
+        if (hash != null) {
+            mapped.limit((int) (position + length)).position((int) position);
+            hash.update(mapped);
+            mapped.clear();
+        }
+        if (target == null) {
+            return;
+        }
+        while (length > 0) {
+            long transferred = source.transferTo(position, length, target);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of input file at offset " + position);
+            }
+            position += transferred;
+            length -= transferred;
+        }
+    }
+
+    /**
+     * Writes a formatted salary.
+     *
+     * @param salary the salary
+     * @throws IOException if writing fails
+     */
+    private void writeSalary(double salary) throws IOException {
+        reserve(SalaryFormat.MAX_FAST_LENGTH);
+        int end = SalaryFormat.encode(salary, buf, count);
+        if (end >= 0) {
+            count = end;
+        } else {
+            writeString(SalaryFormat.format(salary));
+        }
+    }
+
+    /**
+     * Writes a string encoded as UTF-8, with the same replacement of unpaired
+     * surrogates as {@link String#getBytes(java.nio.charset.Charset)}.
+     *
+     * @param s the string
+     * @throws IOException if writing fails
+     */
+    private void writeString(String s) throws IOException {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            reserve(MAX_CHAR_BYTES);
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[count++] = (byte) (0xc0 | c >> 6);
+                buf[count++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[count++] = (byte) (0xf0 | cp >> 18);
+                    buf[count++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                    buf[count++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                    buf[count++] = (byte) (0x80 | cp & 0x3f);
+                } else {
+                    buf[count++] = '?';
+                }
+            } else {
+                buf[count++] = (byte) (0xe0 | c >> 12);
+                buf[count++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buf[count++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+    }
+
+    private void writeByte(byte b) throws IOException {
+        reserve(1);
+        buf[count++] = b;
+    }
+
+    /**
+     * Makes sure the buffer has room for the given number of bytes, writing it out if not.
+     */
+    private void reserve(int bytes) throws IOException {
+        if (buf.length - count < bytes) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Stream under the buffer that adds the bytes written out to a hash.
+     */
+    private static final class HashingStream extends OutputStream {
+
+        private final OutputStream out;
+        private final ContentHash hash;
+
+        HashingStream(OutputStream out, ContentHash hash) {
+            this.out = out;
+            this.hash = hash;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (hash != null) {
+                hash.update(b, off, len);
+            }
+            if (out != null) {
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+}
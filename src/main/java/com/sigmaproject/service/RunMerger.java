@@ -0,0 +1,273 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.EmployeeStore;
+import com.sigmaproject.model.SpilledRuns;
+import com.sigmaproject.model.enums.OrderValue;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * K-way merge of the spilled runs of a department and its in-memory employees.
+ * <p>
+ * Every run is read in batches into a small {@link EmployeeStore}, and a binary heap
+ * picks the run with the next employee. The in-memory employees are sorted here and
+ * form the last run. Employees with equal sort keys are ordered by their ordinals, so
+ * the merged order is the order a stable sort of the whole department would give, and
+ * without a sort the employees are merged back into read order.
+ * </p>
+ */
+final class RunMerger implements Closeable {
+
+    private static final int BATCH_SIZE = 4096;
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    private final String sortBy;
+    private final boolean descending;
+    private final List<Run> runs = new ArrayList<>();
+    private final List<Path> files;
+
+    private Run[] heap;
+    private int heapSize;
+    private boolean started;
+
+    /**
+     * Opens the runs of a department for merging.
+     *
+     * @param spilled the spilled runs
+     * @param memory  the employees still in memory, in read order
+     * @param params  command line parameters
+     * @throws IOException if a run file cannot be opened
+     */
+    RunMerger(SpilledRuns spilled, EmployeeStore memory, CommandLineArgsService params) throws IOException {
+        this.sortBy = params.getSortBy();
+        this.descending = OrderValue.DESC.getValue().equals(params.getOrder());
+        this.files = spilled.getFiles();
+        try {
+            for (Path file : files) {
+                runs.add(new Run(file));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        runs.add(new Run(memory, spilled));
+    }
+
+    /**
+     * Moves to the next employee in merged order.
+     *
+     * @return {@code false} if all runs are exhausted
+     * @throws IOException if a run file cannot be read
+     */
+    boolean next() throws IOException {
+        if (!started) {
+            started = true;
+            heap = new Run[runs.size()];
+            for (Run run : runs) {
+                if (run.load()) {
+                    heap[heapSize] = run;
+                    siftUp(heapSize++);
+                }
+            }
+            return heapSize > 0;
+        }
+        if (heapSize == 0) {
+            return false;
+        }
+        if (!heap[0].advance()) {
+            heap[0] = heap[--heapSize];
+        }
+        if (heapSize > 0) {
+            siftDown();
+        }
+        return heapSize > 0;
+    }
+
+    /**
+     * Returns the store holding the current employee.
+     *
+     * @return the batch of the run with the current employee
+     */
+    EmployeeStore store() {
+        return heap[0].batch;
+    }
+
+    /**
+     * Returns the position of the current employee in {@link #store()}.
+     *
+     * @return the row of the current employee
+     */
+    int row() {
+        return heap[0].row();
+    }
+
+    /**
+     * Closes the run files and deletes them.
+     */
+    @Override
+    public void close() {
+        for (Run run : runs) {
+            run.close();
+        }
+        for (Path file : files) {
+            SpillService.deleteQuietly(file);
+        }
+    }
+
+    /**
+     * Compares the current employees of two runs, breaking ties by ordinal.
+     */
+    private int compare(Run a, Run b) {
+        int cmp = 0;
+        if (a.keys != null) {
+            cmp = a.keys.compare(a.row(), b.keys, b.row());
+            if (descending) {
+                cmp = -cmp;
+            }
+        }
+        return cmp != 0 ? cmp : Long.compare(a.ordinal(), b.ordinal());
+    }
+
+    private void siftUp(int k) {
+        Run run = heap[k];
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (compare(heap[parent], run) <= 0) {
+                break;
+            }
+            heap[k] = heap[parent];
+            k = parent;
+        }
+        heap[k] = run;
+    }
+
+    private void siftDown() {
+        Run run = heap[0];
+        int k = 0;
+        int half = heapSize >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            if (child + 1 < heapSize && compare(heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (compare(run, heap[child]) <= 0) {
+                break;
+            }
+            heap[k] = heap[child];
+            k = child;
+        }
+        heap[k] = run;
+    }
+
+    private SortKeys keysOf(EmployeeStore store) {
+        return sortBy != null ? SortKeys.of(store, sortBy) : null;
+    }
+
+    /**
+     * A sorted run, read from a file in batches or held in memory.
+     */
+    private final class Run {
+
+        final DataInputStream in;
+        final EmployeeStore batch;
+        SortKeys keys;
+        int position;
+        int remaining;
+
+        /**
+         * Ordinals of the rows of a file batch, or of the in-memory rows.
+         */
+        long[] ordinals;
+
+        /**
+         * Sorted order of the in-memory rows; {@code null} for a file run.
+         */
+        int[] order;
+        long base;
+
+        Run(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            this.batch = new EmployeeStore();
+            this.remaining = in.readInt();
+            this.ordinals = new long[Math.min(remaining, BATCH_SIZE)];
+        }
+
+        Run(EmployeeStore memory, SpilledRuns spilled) {
+            this.in = null;
+            this.batch = memory;
+            this.ordinals = spilled.getMemoryOrdinals();
+            this.base = spilled.getRowCount();
+        }
+
+        int row() {
+            return order != null ? order[position] : position;
+        }
+
+        long ordinal() {
+            if (ordinals == null) {
+                return base + row();
+            }
+            return ordinals[row()];
+        }
+
+        /**
+         * Loads the first batch, or sorts the in-memory rows.
+         *
+         * @return {@code false} if the run is empty
+         */
+        boolean load() throws IOException {
+            if (in == null) {
+                keys = keysOf(batch);
+                order = keys != null ? keys.radixOrder(descending) : null;
+                position = 0;
+                return batch.size() > 0;
+            }
+            return refill();
+        }
+
+        /**
+         * Moves to the next employee of the run.
+         *
+         * @return {@code false} if the run is exhausted
+         */
+        boolean advance() throws IOException {
+            if (++position < batch.size()) {
+                return true;
+            }
+            return in != null && refill();
+        }
+
+        private boolean refill() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            batch.clear();
+            int rows = Math.min(remaining, BATCH_SIZE);
+            for (int i = 0; i < rows; i++) {
+                ordinals[i] = in.readLong();
+                batch.readRow(in);
+            }
+            remaining -= rows;
+            keys = keysOf(batch);
+            position = 0;
+            return true;
+        }
+
+        void close() {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // The run file is deleted right after.
+                }
+            }
+        }
+    }
+}
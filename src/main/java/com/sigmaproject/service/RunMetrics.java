@@ -0,0 +1,424 @@
+package com.sigmaproject.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sigmaproject.exception.CustomIllArgException.printErrorMessage;
+import static com.sigmaproject.utils.Constant.ERR_METRICS;
+
+/**
+ * Per-stage metrics of a run, written as a JSON report with {@code --metrics}.
+ * <p>
+ * The run is divided into stages with {@link #begin} and {@link #end}. For every stage
+ * the metrics record the wall time, the CPU time and the bytes allocated by the thread
+ * running the stage and by the worker threads of its pools, the records going in and out,
+ * the bytes read and written and the error lines by reason. CPU time and allocation are
+ * measured with the {@link java.lang.management.ThreadMXBean}: worker threads are created
+ * by {@link #threadFactory()} and {@link #forkJoinThreadFactory()} and add their totals when
+ * they exit, so pools have to be drained with {@link #awaitTermination} before the stage ends.
+ * The CPU time of the whole process, which includes garbage collection and compilation,
+ * is recorded as well.
+ * </p>
+ * <p>
+ * Without {@code --metrics} the run uses {@link #DISABLED}, on which every method does nothing.
+ * Stages are begun and ended by a single thread; counters may be added from any thread.
+ * </p>
+ */
+public final class RunMetrics {
+
+    /**
+     * Metrics that record nothing.
+     */
+    static final RunMetrics DISABLED = new RunMetrics(null);
+
+    private static final long WORKER_EXIT_TIMEOUT_SECONDS = 10;
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+    private static final com.sun.management.OperatingSystemMXBean OS = operatingSystemMXBean();
+
+    private final Path report;
+    private final List<Stage> stages = new ArrayList<>();
+    private final AtomicLong workerCpuNanos = new AtomicLong();
+    private final AtomicLong workerAllocatedBytes = new AtomicLong();
+    private final Queue<Thread> workers = new ConcurrentLinkedQueue<>();
+    private Instant startTime;
+    private long startNanos;
+    private volatile Stage current;
+
+    /**
+     * Creates metrics that are written to a report file.
+     *
+     * @param report the report file, or {@code null} to record nothing
+     */
+    RunMetrics(Path report) {
+        this.report = report;
+    }
+
+    /**
+     * Returns whether the metrics are recorded.
+     *
+     * @return {@code false} for {@link #DISABLED}
+     */
+    boolean isEnabled() {
+        return report != null;
+    }
+
+    /**
+     * Begins a stage, ending the current one if there is one.
+     *
+     * @param name the stage name
+     */
+    void begin(String name) {
+        if (!isEnabled()) {
+            return;
+        }
+        end();
+        if (startTime == null) {
+            startTime = Instant.now();
+            startNanos = System.nanoTime();
+        }
+        current = new Stage(name);
+        current.wallNanos = -System.nanoTime();
+        current.cpuNanos = -cpuNanos();
+        current.allocatedBytes = -allocatedBytes();
+        current.processCpuNanos = -processCpuNanos();
+    }
+
+    /**
+     * Ends the current stage.
+     */
+    void end() {
+        if (current == null) {
+            return;
+        }
+        current.wallNanos += System.nanoTime();
+        current.cpuNanos += cpuNanos();
+        current.allocatedBytes += allocatedBytes();
+        current.processCpuNanos += processCpuNanos();
+        stages.add(current);
+        current = null;
+    }
+
+    /**
+     * Records the numbers of records the current stage took and produced.
+     *
+     * @param in  the records going into the stage
+     * @param out the records coming out of the stage
+     */
+    void records(long in, long out) {
+        if (current != null) {
+            current.recordsIn.addAndGet(in);
+            current.recordsOut.addAndGet(out);
+        }
+    }
+
+    /**
+     * Records the size of the input files of the current stage.
+     *
+     * @param files the files read
+     */
+    void bytesRead(List<Path> files) {
+        if (current == null) {
+            return;
+        }
+        for (Path file : files) {
+            try {
+                current.bytesRead.addAndGet(Files.size(file));
+            } catch (IOException e) {
+                // A file that vanished after it was read adds nothing.
+            }
+        }
+    }
+
+    /**
+     * Records bytes written by the current stage.
+     *
+     * @param bytes the number of bytes
+     */
+    void bytesWritten(long bytes) {
+        Stage stage = current;
+        if (stage != null) {
+            stage.bytesWritten.addAndGet(bytes);
+        }
+    }
+
+    /**
+     * Records error lines of the current stage.
+     *
+     * @param reason the reason of the errors
+     * @param count  the number of error lines
+     */
+    void errors(String reason, long count) {
+        Stage stage = current;
+        if (stage != null && count > 0) {
+            synchronized (stage.errors) {
+                stage.errors.merge(reason, count, Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Returns a factory for pool threads that are measured when they exit.
+     *
+     * @return the thread factory
+     */
+    ThreadFactory threadFactory() {
+        ThreadFactory threads = Executors.defaultThreadFactory();
+        if (!isEnabled()) {
+            return threads;
+        }
+        return task -> {
+            Thread worker = threads.newThread(() -> {
+                try {
+                    task.run();
+                } finally {
+                    addWorker();
+                }
+            });
+            workers.add(worker);
+            return worker;
+        };
+    }
+
+    /**
+     * Returns a factory for fork-join worker threads that are measured when they exit.
+     *
+     * @return the worker thread factory
+     */
+    ForkJoinPool.ForkJoinWorkerThreadFactory forkJoinThreadFactory() {
+        if (!isEnabled()) {
+            return ForkJoinPool.defaultForkJoinWorkerThreadFactory;
+        }
+        return MeasuredWorker::new;
+    }
+
+    /**
+     * Waits until the threads of a pool that was shut down have exited, so that their CPU
+     * time and allocation count towards the current stage.
+     *
+     * @param pool the pool
+     */
+    void awaitTermination(ExecutorService pool) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            pool.awaitTermination(WORKER_EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            // A pool terminates before its threads have run to the end.
+            Thread worker;
+            while ((worker = workers.poll()) != null) {
+                worker.join(TimeUnit.SECONDS.toMillis(WORKER_EXIT_TIMEOUT_SECONDS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ends the current stage and writes the report. A run that failed in a stage is
+     * reported as not completed, without that stage.
+     */
+    void writeReport() {
+        if (!isEnabled()) {
+            return;
+        }
+        boolean completed = current == null;
+        current = null;
+        try (BufferedWriter out = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            out.write(toJson(completed));
+        } catch (IOException e) {
+            printErrorMessage(ERR_METRICS + e.getMessage());
+        }
+    }
+
+    private String toJson(boolean completed) {
+        long cpu = 0;
+        long allocated = 0;
+        long processCpu = 0;
+        long bytesRead = 0;
+        long bytesWritten = 0;
+        Map<String, Long> errors = new LinkedHashMap<>();
+        for (Stage stage : stages) {
+            cpu += stage.cpuNanos;
+            allocated += stage.allocatedBytes;
+            processCpu += stage.processCpuNanos;
+            bytesRead += stage.bytesRead.get();
+            bytesWritten += stage.bytesWritten.get();
+            stage.errors.forEach((reason, count) -> errors.merge(reason, count, Long::sum));
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"startTime\": ").append(quote(startTime != null ? startTime.toString() : "")).append(",\n");
+        json.append("  \"completed\": ").append(completed).append(",\n");
+        json.append("  \"wallTimeNs\": ").append(startTime != null ? System.nanoTime() - startNanos : 0).append(",\n");
+        json.append("  \"cpuTimeNs\": ").append(cpu).append(",\n");
+        json.append("  \"processCpuTimeNs\": ").append(processCpu).append(",\n");
+        json.append("  \"allocatedBytes\": ").append(allocated).append(",\n");
+        json.append("  \"bytesRead\": ").append(bytesRead).append(",\n");
+        json.append("  \"bytesWritten\": ").append(bytesWritten).append(",\n");
+        json.append("  \"errors\": ");
+        appendErrors(json, errors);
+        json.append(",\n");
+        json.append("  \"stages\": [");
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\n");
+            json.append("      \"name\": ").append(quote(stage.name)).append(",\n");
+            json.append("      \"wallTimeNs\": ").append(stage.wallNanos).append(",\n");
+            json.append("      \"cpuTimeNs\": ").append(stage.cpuNanos).append(",\n");
+            json.append("      \"processCpuTimeNs\": ").append(stage.processCpuNanos).append(",\n");
+            json.append("      \"allocatedBytes\": ").append(stage.allocatedBytes).append(",\n");
+            json.append("      \"recordsIn\": ").append(stage.recordsIn.get()).append(",\n");
+            json.append("      \"recordsOut\": ").append(stage.recordsOut.get()).append(",\n");
+            json.append("      \"bytesRead\": ").append(stage.bytesRead.get()).append(",\n");
+            json.append("      \"bytesWritten\": ").append(stage.bytesWritten.get()).append(",\n");
+            json.append("      \"errors\": ");
+            appendErrors(json, stage.errors);
+            json.append("\n    }");
+        }
+        json.append(stages.isEmpty() ? "]\n" : "\n  ]\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static void appendErrors(StringBuilder json, Map<String, Long> errors) {
+        json.append('{');
+        String separator = "";
+        for (Map.Entry<String, Long> e : errors.entrySet()) {
+            json.append(separator).append(quote(e.getKey())).append(": ").append(e.getValue());
+            separator = ", ";
+        }
+        json.append('}');
+    }
+
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Returns the CPU time of the calling thread and of the worker threads that exited.
+     */
+    private long cpuNanos() {
+        long nanos = THREADS != null && THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+        return nanos + workerCpuNanos.get();
+    }
+
+    /**
+     * Returns the bytes allocated by the calling thread and by the worker threads that exited.
+     */
+    private long allocatedBytes() {
+        return threadAllocatedBytes() + workerAllocatedBytes.get();
+    }
+
+    private static long threadAllocatedBytes() {
+        if (THREADS == null || !THREADS.isThreadAllocatedMemorySupported()) {
+            return 0;
+        }
+        return Math.max(0, THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()));
+    }
+
+    private static long processCpuNanos() {
+        return OS != null ? Math.max(0, OS.getProcessCpuTime()) : 0;
+    }
+
+    /**
+     * Adds the totals of an exiting worker thread.
+     */
+    private void addWorker() {
+        if (THREADS != null && THREADS.isCurrentThreadCpuTimeSupported()) {
+            workerCpuNanos.addAndGet(THREADS.getCurrentThreadCpuTime());
+        }
+        workerAllocatedBytes.addAndGet(threadAllocatedBytes());
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (threads.isThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+            threads.setThreadCpuTimeEnabled(true);
+        }
+        if (threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads;
+    }
+
+    private static com.sun.management.OperatingSystemMXBean operatingSystemMXBean() {
+        java.lang.management.OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        return bean instanceof com.sun.management.OperatingSystemMXBean
+                ? (com.sun.management.OperatingSystemMXBean) bean
+                : null;
+    }
+
+    /**
+     * A fork-join worker thread that adds its totals when it exits.
+     */
+    private final class MeasuredWorker extends ForkJoinWorkerThread {
+
+        MeasuredWorker(ForkJoinPool pool) {
+            super(pool);
+        }
+
+        @Override
+        protected void onTermination(Throwable exception) {
+            addWorker();
+            super.onTermination(exception);
+        }
+    }
+
+    /**
+     * The measurements of one stage. The times and allocation hold the negated start
+     * values while the stage runs.
+     */
+    private static final class Stage {
+
+        final String name;
+        final AtomicLong recordsIn = new AtomicLong();
+        final AtomicLong recordsOut = new AtomicLong();
+        final AtomicLong bytesRead = new AtomicLong();
+        final AtomicLong bytesWritten = new AtomicLong();
+        final Map<String, Long> errors = new LinkedHashMap<>();
+        long wallNanos;
+        long cpuNanos;
+        long allocatedBytes;
+        long processCpuNanos;
+
+        Stage(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.sigmaproject.service;
 
+import com.sigmaproject.utils.Money;
+
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
@@ -9,24 +11,52 @@ import java.math.RoundingMode;
 public class SalaryService {
 
     /**
-     * Parses a salary string and converts it to a Double.
+     * Parses a salary string and converts it to a double.
+     * <p>
+     * Plain decimal amounts are parsed by {@link Money#parseCents(CharSequence)} without
+     * exceptions; only amounts that do not fit whole cents are handed to
+     * {@link Double#parseDouble(String)}.
+     * </p>
      *
      * @param salaryStr the salary string to parse
-     * @return the parsed salary as a Double, or null if the input is invalid
+     * @return the parsed salary, or {@link Double#NaN} if the input is not a positive number
      */
-    public static Double parseSalary(String salaryStr) {
-        if (salaryStr == null || salaryStr.isBlank()) {
-            return null;
+    public static double parseSalary(String salaryStr) {
+        if (salaryStr == null) {
+            return Double.NaN;
+        }
+        long cents = Money.parseCents(salaryStr);
+        if (cents > 0) {
+            return Money.toDouble(cents);
         }
+        return cents == Money.INEXACT ? parseInexactSalary(salaryStr) : Double.NaN;
+    }
+
+    /**
+     * Parses a salary that cannot be represented in whole cents.
+     *
+     * @param salaryStr the salary string to parse
+     * @return the parsed salary, or {@link Double#NaN} if the input is not a positive number
+     */
+    static double parseInexactSalary(String salaryStr) {
         try {
             double val = Double.parseDouble(salaryStr);
-            if (val <= 0) return null;
-            return val;
+            return val > 0 ? val : Double.NaN;
         } catch (NumberFormatException e) {
-            return null;
+            return Double.NaN;
         }
     }
 
+    /**
+     * Checks whether a parsed salary is valid, that is a positive number.
+     *
+     * @param salary the parsed salary
+     * @return {@code true} if the salary is valid
+     */
+    public static boolean isValid(double salary) {
+        return salary > 0;
+    }
+
     /**
      * Rounds up a given value to two decimal places.
      *
@@ -0,0 +1,549 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.Department;
+import com.sigmaproject.model.Employee;
+import com.sigmaproject.model.EmployeeStore;
+import com.sigmaproject.model.Manager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persisted model of a run, which delta files are applied to.
+ * <p>
+ * A snapshot directory holds an index with the managers and the number of employees
+ * reporting to each, and, for every department, its owning manager and its statistics
+ * columns; one file per department with its employees in distribution order, in the
+ * binary row format of {@link EmployeeStore#writeRow}; and the manager of every employee,
+ * split by a hash of the employee ID into {@link #EMPLOYEE_SHARDS} shard files. Applying a
+ * delta loads the index and only the departments and shards the delta touches;
+ * {@link #save} writes back only those, and the index.
+ * The index also records the output options the department files were last written
+ * with, so that a run with other options can rewrite all of them.
+ * </p>
+ */
+final class Snapshot {
+
+    private static final int MAGIC = 0x53425301;
+    private static final int FORMAT_VERSION = 2;
+    private static final String INDEX_FILE = "index.bin";
+    private static final String DEPARTMENT_SUFFIX = ".bin";
+    private static final String EMPLOYEE_DIR = "employees";
+
+    /**
+     * Number of shard files the managers of the employees are split into.
+     */
+    private static final int EMPLOYEE_SHARDS = 64;
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    private final Path directory;
+    private final Map<String, Manager> managersById = new LinkedHashMap<>();
+    private final Map<String, Integer> reportsByManager = new HashMap<>();
+
+    /**
+     * Manager ID by employee ID, one map per shard, or {@code null} for a shard that is not loaded.
+     */
+    private final List<Map<String, String>> managerIdByEmployee = new ArrayList<>();
+    private final BitSet changedShards = new BitSet();
+    private final Map<String, Entry> departments = new LinkedHashMap<>();
+    private final Map<String, Loaded> loaded = new LinkedHashMap<>();
+    private final Set<String> removed = new HashSet<>();
+    private String outputOptions;
+
+    private Snapshot(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Writes the snapshot of a complete run, replacing any previous snapshot.
+     *
+     * @param directory     the snapshot directory
+     * @param managers      all accepted managers in read order
+     * @param departments   the departments, with their employees in distribution order
+     * @param outputOptions the output options the department files are written with
+     * @throws IOException if the snapshot cannot be written
+     */
+    static void write(Path directory, Collection<Manager> managers, Map<String, Department> departments,
+                      String outputOptions) throws IOException {
+        Files.createDirectories(directory.resolve(EMPLOYEE_DIR));
+        deleteFiles(directory);
+        deleteFiles(directory.resolve(EMPLOYEE_DIR));
+        Snapshot snapshot = new Snapshot(directory);
+        snapshot.outputOptions = outputOptions;
+        for (Manager m : managers) {
+            snapshot.managersById.put(m.getId(), m);
+        }
+        for (int i = 0; i < EMPLOYEE_SHARDS; i++) {
+            snapshot.managerIdByEmployee.add(new HashMap<>());
+        }
+        snapshot.changedShards.set(0, EMPLOYEE_SHARDS);
+        for (Department d : departments.values()) {
+            EmployeeStore store = d.getEmployees();
+            for (int i = 0; i < store.size(); i++) {
+                String id = store.getId(i);
+                snapshot.managerIdByEmployee.get(snapshot.shardOf(id)).put(id, store.getManagerId(i));
+                snapshot.reportsByManager.merge(store.getManagerId(i), 1, Integer::sum);
+            }
+            snapshot.departments.put(d.getName(), new Entry(d.getManager().getId(), d));
+            snapshot.writeDepartment(d.getName(), store);
+        }
+        snapshot.writeShards();
+        snapshot.writeIndex();
+    }
+
+    /**
+     * Loads the index of a snapshot. Departments and employee shards are loaded when a
+     * delta touches them.
+     *
+     * @param directory the snapshot directory
+     * @return the snapshot
+     * @throws IOException if there is no readable snapshot
+     */
+    static Snapshot load(Path directory) throws IOException {
+        Snapshot snapshot = new Snapshot(directory);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(directory.resolve(INDEX_FILE)), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("unsupported snapshot format in " + directory);
+            }
+            snapshot.outputOptions = readString(in);
+            int managers = in.readInt();
+            for (int i = 0; i < managers; i++) {
+                Manager m = new Manager(readString(in), readString(in), in.readDouble(), readString(in));
+                snapshot.managersById.put(m.getId(), m);
+                int reports = in.readInt();
+                if (reports > 0) {
+                    snapshot.reportsByManager.put(m.getId(), reports);
+                }
+            }
+            int departments = in.readInt();
+            for (int i = 0; i < departments; i++) {
+                String name = readString(in);
+                snapshot.departments.put(name, new Entry(readString(in), readString(in), readString(in)));
+            }
+            snapshot.managerIdByEmployee.addAll(Collections.nCopies(in.readInt(), null));
+        }
+        for (Manager m : snapshot.managersById.values()) {
+            Entry entry = snapshot.departments.get(m.getDepartment());
+            if (entry != null) {
+                entry.managers++;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Prepares the department files to be written with the given output options. If the
+     * files were written with other options, every department is loaded so that all of
+     * them are rewritten.
+     *
+     * @param options the output options of this run
+     * @throws IOException if a department cannot be loaded
+     */
+    void useOutputOptions(String options) throws IOException {
+        if (!options.equals(outputOptions)) {
+            for (String name : departments.keySet()) {
+                load(name);
+            }
+            outputOptions = options;
+        }
+    }
+
+    /**
+     * Adds a manager or updates the name and salary of an existing one.
+     * <p>
+     * A new manager of a department that already has one is registered like a duplicate
+     * manager of a full run: its employees join that department and the error line is
+     * reported. A manager cannot be moved to another department.
+     * </p>
+     *
+     * @param manager    the manager
+     * @param errorLines list to collect error messages
+     * @return {@code false} if the record was rejected
+     * @throws IOException if the department cannot be loaded
+     */
+    boolean upsertManager(Manager manager, List<String> errorLines) throws IOException {
+        Manager existing = managersById.get(manager.getId());
+        String name = manager.getDepartment();
+        if (existing != null) {
+            if (!existing.getDepartment().equals(name)) {
+                return false;
+            }
+            managersById.put(manager.getId(), manager);
+            if (departments.get(name).ownerId.equals(manager.getId())) {
+                load(name);
+            }
+            return true;
+        }
+        managersById.put(manager.getId(), manager);
+        Entry entry = departments.get(name);
+        if (entry != null) {
+            entry.managers++;
+            errorLines.add(DepartmentService.duplicateManagerLine(manager));
+            return true;
+        }
+        entry = new Entry(manager.getId(), null, null);
+        entry.managers = 1;
+        departments.put(name, entry);
+        removed.remove(name);
+        loaded.put(name, new Loaded(new EmployeeStore()));
+        return true;
+    }
+
+    /**
+     * Deletes a manager that no employee reports to. Deleting the only manager of a
+     * department deletes the department.
+     *
+     * @param id the manager ID
+     * @return {@code false} if the record was rejected
+     */
+    boolean deleteManager(String id) {
+        Manager manager = managersById.get(id);
+        if (manager == null || reportsByManager.getOrDefault(id, 0) > 0) {
+            return false;
+        }
+        String name = manager.getDepartment();
+        Entry entry = departments.get(name);
+        if (entry.ownerId.equals(id)) {
+            if (entry.managers > 1) {
+                return false;
+            }
+            departments.remove(name);
+            loaded.remove(name);
+            removed.add(name);
+        } else {
+            entry.managers--;
+        }
+        managersById.remove(id);
+        return true;
+    }
+
+    /**
+     * Adds an employee or replaces an existing one. An employee that stays in its
+     * department keeps its position; otherwise it is appended to its department.
+     *
+     * @param employee the employee
+     * @return {@code false} if the manager of the employee is unknown
+     * @throws IOException if a department cannot be loaded
+     */
+    boolean upsertEmployee(Employee employee) throws IOException {
+        Manager manager = managersById.get(employee.getManagerId());
+        if (manager == null) {
+            return false;
+        }
+        String id = employee.getId();
+        Loaded target = load(manager.getDepartment());
+        String previousManagerId = employeeShard(id).put(id, employee.getManagerId());
+        changedShards.set(shardOf(id));
+        reportsByManager.merge(employee.getManagerId(), 1, Integer::sum);
+        if (previousManagerId != null) {
+            reportsByManager.merge(previousManagerId, -1, Integer::sum);
+            Loaded source = load(managersById.get(previousManagerId).getDepartment());
+            if (source == target) {
+                target.rows.set(target.rowById.get(id), employee);
+                return true;
+            }
+            source.deleted.set(source.rowById.remove(id));
+        }
+        target.rowById.put(id, target.rows.size());
+        target.rows.add(employee);
+        return true;
+    }
+
+    /**
+     * Deletes an employee.
+     *
+     * @param id the employee ID
+     * @return {@code false} if there is no employee with the ID
+     * @throws IOException if the department cannot be loaded
+     */
+    boolean deleteEmployee(String id) throws IOException {
+        String managerId = employeeShard(id).remove(id);
+        if (managerId == null) {
+            return false;
+        }
+        changedShards.set(shardOf(id));
+        reportsByManager.merge(managerId, -1, Integer::sum);
+        Loaded source = load(managersById.get(managerId).getDepartment());
+        source.deleted.set(source.rowById.remove(id));
+        return true;
+    }
+
+    /**
+     * Builds the departments changed by the applied records, with their remaining
+     * employees in order and fresh statistics.
+     *
+     * @return the changed departments by name
+     */
+    Map<String, Department> changedDepartments() {
+        Map<String, Department> changed = new HashMap<>();
+        for (Map.Entry<String, Loaded> e : loaded.entrySet()) {
+            String name = e.getKey();
+            Loaded l = e.getValue();
+            Department dept = new Department(name, managersById.get(departments.get(name).ownerId));
+            for (int i = 0; i < l.rows.size(); i++) {
+                if (!l.deleted.get(i)) {
+                    dept.getEmployees().add(l.rows.get(i));
+                    dept.getSalaryStats().add(l.rows.getSalary(i));
+                }
+            }
+            changed.put(name, dept);
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the departments removed by the applied records.
+     *
+     * @return the names of the removed departments
+     */
+    Set<String> removedDepartments() {
+        return removed;
+    }
+
+    /**
+     * Returns the statistics columns of every department: the statistics line and the
+     * percentile columns.
+     *
+     * @return the columns by department name, in snapshot order
+     */
+    Map<String, String[]> statistics() {
+        Map<String, String[]> statistics = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> e : departments.entrySet()) {
+            statistics.put(e.getKey(), new String[]{e.getValue().statsLine, e.getValue().percentileColumns});
+        }
+        return statistics;
+    }
+
+    /**
+     * Writes back the changed departments, before they are sorted for output, the changed
+     * employee shards and the index.
+     *
+     * @param changed the departments returned by {@link #changedDepartments()}
+     * @throws IOException if the snapshot cannot be written
+     */
+    void save(Map<String, Department> changed) throws IOException {
+        for (Department d : changed.values()) {
+            Entry entry = departments.get(d.getName());
+            String[] columns = StatisticsService.statisticsColumns(d, true);
+            entry.statsLine = columns[0];
+            entry.percentileColumns = columns[1];
+            writeDepartment(d.getName(), d.getEmployees());
+        }
+        for (String name : removed) {
+            Files.deleteIfExists(departmentFile(name));
+        }
+        writeShards();
+        writeIndex();
+    }
+
+    /**
+     * Returns the shard of the managers of employees that an employee ID belongs to.
+     */
+    private int shardOf(String employeeId) {
+        return Math.floorMod(employeeId.hashCode(), managerIdByEmployee.size());
+    }
+
+    /**
+     * Returns the managers of the employees in the shard of an employee ID, loading the shard if needed.
+     */
+    private Map<String, String> employeeShard(String employeeId) throws IOException {
+        int shard = shardOf(employeeId);
+        Map<String, String> managerIds = managerIdByEmployee.get(shard);
+        if (managerIds != null) {
+            return managerIds;
+        }
+        managerIds = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(shardFile(shard)), BUFFER_SIZE))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                managerIds.put(readString(in), readString(in));
+            }
+        }
+        managerIdByEmployee.set(shard, managerIds);
+        return managerIds;
+    }
+
+    private void writeShards() throws IOException {
+        for (int shard = changedShards.nextSetBit(0); shard >= 0; shard = changedShards.nextSetBit(shard + 1)) {
+            Map<String, String> managerIds = managerIdByEmployee.get(shard);
+            Path temp = Files.createTempFile(directory, "employees", TEMP_SUFFIX);
+            try {
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                    out.writeInt(managerIds.size());
+                    for (Map.Entry<String, String> e : managerIds.entrySet()) {
+                        writeString(out, e.getKey());
+                        writeString(out, e.getValue());
+                    }
+                }
+                Files.move(temp, shardFile(shard), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        changedShards.clear();
+    }
+
+    private Loaded load(String name) throws IOException {
+        Loaded l = loaded.get(name);
+        if (l != null) {
+            return l;
+        }
+        EmployeeStore rows = new EmployeeStore();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(departmentFile(name)), BUFFER_SIZE))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                rows.readRow(in);
+            }
+        }
+        rows.dropSources();
+        l = new Loaded(rows);
+        for (int i = 0; i < rows.size(); i++) {
+            l.rowById.put(rows.getId(i), i);
+        }
+        loaded.put(name, l);
+        return l;
+    }
+
+    private void writeDepartment(String name, EmployeeStore store) throws IOException {
+        Path temp = Files.createTempFile(directory, "dept", TEMP_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                out.writeInt(store.size());
+                for (int i = 0; i < store.size(); i++) {
+                    store.writeRow(i, out);
+                }
+            }
+            Files.move(temp, departmentFile(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Path temp = Files.createTempFile(directory, "index", TEMP_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeString(out, outputOptions);
+                out.writeInt(managersById.size());
+                for (Manager m : managersById.values()) {
+                    writeString(out, m.getId());
+                    writeString(out, m.getName());
+                    out.writeDouble(m.getSalary());
+                    writeString(out, m.getDepartment());
+                    out.writeInt(reportsByManager.getOrDefault(m.getId(), 0));
+                }
+                out.writeInt(departments.size());
+                for (Map.Entry<String, Entry> e : departments.entrySet()) {
+                    writeString(out, e.getKey());
+                    writeString(out, e.getValue().ownerId);
+                    writeString(out, e.getValue().statsLine);
+                    writeString(out, e.getValue().percentileColumns);
+                }
+                out.writeInt(managerIdByEmployee.size());
+            }
+            Files.move(temp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path departmentFile(String name) {
+        return directory.resolve(name + DEPARTMENT_SUFFIX);
+    }
+
+    private Path shardFile(int shard) {
+        return directory.resolve(EMPLOYEE_DIR).resolve(shard + DEPARTMENT_SUFFIX);
+    }
+
+    private static void deleteFiles(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + DEPARTMENT_SUFFIX)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Index entry of a department.
+     */
+    private static final class Entry {
+
+        final String ownerId;
+        String statsLine;
+        String percentileColumns;
+
+        /**
+         * Number of managers of the department, including the owner.
+         */
+        int managers;
+
+        Entry(String ownerId, String statsLine, String percentileColumns) {
+            this.ownerId = ownerId;
+            this.statsLine = statsLine;
+            this.percentileColumns = percentileColumns;
+        }
+
+        Entry(String ownerId, Department d) {
+            this(ownerId, null, null);
+            String[] columns = StatisticsService.statisticsColumns(d, true);
+            this.statsLine = columns[0];
+            this.percentileColumns = columns[1];
+        }
+    }
+
+    /**
+     * Employees of a department loaded for changes.
+     */
+    private static final class Loaded {
+
+        final EmployeeStore rows;
+        final Map<String, Integer> rowById = new HashMap<>();
+        final BitSet deleted = new BitSet();
+
+        Loaded(EmployeeStore rows) {
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.EmployeeStore;
+import com.sigmaproject.model.enums.SortValue;
+import com.sigmaproject.utils.RadixSort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Sort keys of the rows of an employee store, computed once per sort.
+ * <p>
+ * Salaries become {@link RadixSort#sortableBits(double) sortable long bits}, which order
+ * like {@link Double#compare(double, double)}, including NaN for a missing salary.
+ * Names become case-folded byte strings: every char is folded the way
+ * {@link String#CASE_INSENSITIVE_ORDER} folds it and encoded with the UTF-8 byte
+ * patterns, which keep the order of the char values, so comparing the keys byte by
+ * byte gives the same order as comparing the names with that comparator.
+ * </p>
+ */
+final class SortKeys {
+
+    private static final int ASCII_LIMIT = 0x80;
+
+    private final long[] salaryKeys;
+    private final byte[] namePool;
+    private final int[] nameOffsets;
+    private final int[] nameLengths;
+
+    private SortKeys(long[] salaryKeys, byte[] namePool, int[] nameOffsets, int[] nameLengths) {
+        this.salaryKeys = salaryKeys;
+        this.namePool = namePool;
+        this.nameOffsets = nameOffsets;
+        this.nameLengths = nameLengths;
+    }
+
+    /**
+     * Computes the keys of a store for the given sort parameter.
+     *
+     * @param store  the store
+     * @param sortBy the sort parameter, {@code name} or {@code salary}
+     * @return the keys
+     */
+    static SortKeys of(EmployeeStore store, String sortBy) {
+        return SortValue.NAME.getValue().equals(sortBy) ? names(store) : salaries(store);
+    }
+
+    /**
+     * Computes the salary keys of a store.
+     *
+     * @param store the store
+     * @return the keys
+     */
+    static SortKeys salaries(EmployeeStore store) {
+        long[] keys = new long[store.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = RadixSort.sortableBits(store.getSalary(i));
+        }
+        return new SortKeys(keys, null, null, null);
+    }
+
+    /**
+     * Computes the case-folded name keys of a store.
+     *
+     * @param store the store
+     * @return the keys
+     */
+    static SortKeys names(EmployeeStore store) {
+        int n = store.size();
+        int[] offsets = new int[n];
+        int[] lengths = new int[n];
+        byte[] pool = new byte[Math.max(16, n * 8)];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            int length = store.getNameLength(i);
+            // A folded char never takes more UTF-8 bytes than three times the bytes of the name.
+            if (pool.length - size < 3 * length) {
+                pool = Arrays.copyOf(pool, Math.max(pool.length * 2, size + 3 * length));
+            }
+            store.copyName(i, pool, size);
+            boolean ascii = true;
+            for (int k = size; k < size + length && ascii; k++) {
+                ascii = pool[k] >= 0;
+            }
+            offsets[i] = size;
+            if (ascii) {
+                for (int k = size; k < size + length; k++) {
+                    pool[k] = (byte) foldAscii(pool[k]);
+                }
+                lengths[i] = length;
+            } else {
+                String name = new String(pool, size, length, StandardCharsets.UTF_8);
+                lengths[i] = encodeFolded(name, pool, size) - size;
+            }
+            size += lengths[i];
+        }
+        return new SortKeys(null, pool, offsets, lengths);
+    }
+
+    /**
+     * Sorts the rows by their keys with a stable radix sort.
+     *
+     * @param descending whether to sort in descending order
+     * @return the rows in sorted order
+     */
+    int[] radixOrder(boolean descending) {
+        return salaryKeys != null
+                ? RadixSort.sortUnsigned(salaryKeys, descending)
+                : RadixSort.sortBytes(namePool, nameOffsets, nameLengths, descending);
+    }
+
+    /**
+     * Compares a row with a row of another set of keys of the same kind.
+     *
+     * @param row      the row of these keys
+     * @param other    the other keys
+     * @param otherRow the row of the other keys
+     * @return a negative number, zero or a positive number as the row sorts before,
+     * together with or after the other row in ascending order
+     */
+    int compare(int row, SortKeys other, int otherRow) {
+        if (salaryKeys != null) {
+            return Long.compareUnsigned(salaryKeys[row], other.salaryKeys[otherRow]);
+        }
+        int offset = nameOffsets[row];
+        int otherOffset = other.nameOffsets[otherRow];
+        int length = nameLengths[row];
+        int otherLength = other.nameLengths[otherRow];
+        int limit = Math.min(length, otherLength);
+        for (int k = 0; k < limit; k++) {
+            int x = namePool[offset + k] & 0xff;
+            int y = other.namePool[otherOffset + k] & 0xff;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return length - otherLength;
+    }
+
+    /**
+     * Selects the first rows in sorted order with a bounded heap in O(n log k).
+     * <p>
+     * The result starts with the first {@code limit} rows in the order {@link #radixOrder}
+     * would give them, ties included, followed by all other rows in their original order.
+     * </p>
+     *
+     * @param limit      the number of rows to select
+     * @param descending whether to sort in descending order
+     * @return all rows, the selected ones first
+     */
+    int[] topOrder(int limit, boolean descending) {
+        int n = salaryKeys != null ? salaryKeys.length : nameOffsets.length;
+        if (limit >= n) {
+            return radixOrder(descending);
+        }
+
+        // Max-heap of the best rows seen so far, with the worst of them on top. A row is
+        // worse than another if its key comes later or, for equal keys, its index is higher,
+        // so later rows with an equal key never displace earlier ones.
+        int[] heap = new int[limit];
+        int size = 0;
+        for (int row = 0; row < n; row++) {
+            if (size < limit) {
+                heap[size] = row;
+                siftUp(heap, size++, descending);
+            } else if (compareRows(row, heap[0], descending) < 0) {
+                heap[0] = row;
+                siftDown(heap, size, descending);
+            }
+        }
+
+        int[] order = new int[n];
+        boolean[] selected = new boolean[n];
+        for (int k = limit - 1; k >= 0; k--) {
+            order[k] = heap[0];
+            selected[heap[0]] = true;
+            heap[0] = heap[k];
+            siftDown(heap, k, descending);
+        }
+        int next = limit;
+        for (int row = 0; row < n; row++) {
+            if (!selected[row]) {
+                order[next++] = row;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Sorts the rows by their keys on several threads.
+     * <p>
+     * The rows are cut into contiguous chunks that are ordered by the radix sort
+     * concurrently, and the sorted chunks are then merged pairwise, the merges of one
+     * round again running concurrently. A merge takes the row of the left chunk when keys
+     * are equal, so the result is the same as that of {@link #radixOrder}. The work runs
+     * in the fork-join pool of the calling task.
+     * </p>
+     *
+     * @param chunks     the number of chunks sorted concurrently
+     * @param descending whether to sort in descending order
+     * @return the rows in sorted order
+     */
+    int[] parallelOrder(int chunks, boolean descending) {
+        int n = salaryKeys != null ? salaryKeys.length : nameOffsets.length;
+        int chunkSize = Math.max(1, (n + chunks - 1) / chunks);
+        int[] chunked = new int[n];
+        IntStream.range(0, (n + chunkSize - 1) / chunkSize).parallel().forEach(c -> {
+            int from = c * chunkSize;
+            int[] chunk = radixOrder(from, Math.min(n, from + chunkSize), descending);
+            for (int k = 0; k < chunk.length; k++) {
+                chunked[from + k] = from + chunk[k];
+            }
+        });
+
+        int[] order = chunked;
+        int[] merged = new int[n];
+        for (long width = chunkSize; width < n; width *= 2) {
+            int run = (int) width;
+            long step = 2 * width;
+            int[] source = order;
+            int[] target = merged;
+            IntStream.range(0, (int) ((n + step - 1) / step)).parallel().forEach(p -> {
+                int from = (int) (step * p);
+                int mid = Math.min(n, from + run);
+                merge(source, target, from, mid, Math.min(n, mid + run), descending);
+            });
+            merged = order;
+            order = target;
+        }
+        return order;
+    }
+
+    /**
+     * Sorts the rows {@code from} to {@code to} by their keys with a stable radix sort.
+     *
+     * @return the rows in sorted order, relative to {@code from}
+     */
+    private int[] radixOrder(int from, int to, boolean descending) {
+        return salaryKeys != null
+                ? RadixSort.sortUnsigned(Arrays.copyOfRange(salaryKeys, from, to), descending)
+                : RadixSort.sortBytes(namePool, Arrays.copyOfRange(nameOffsets, from, to),
+                        Arrays.copyOfRange(nameLengths, from, to), descending);
+    }
+
+    /**
+     * Merges two adjacent sorted runs of rows, taking the left row when keys are equal.
+     */
+    private void merge(int[] source, int[] target, int from, int mid, int to, boolean descending) {
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid && j < to) {
+            int cmp = compareKeys(source[i], source[j]);
+            target[k++] = (descending ? cmp >= 0 : cmp <= 0) ? source[i++] : source[j++];
+        }
+        System.arraycopy(source, i, target, k, mid - i);
+        System.arraycopy(source, j, target, k + mid - i, to - j);
+    }
+
+    /**
+     * Compares the keys of two rows in ascending order.
+     */
+    private int compareKeys(int a, int b) {
+        return salaryKeys != null
+                ? Long.compareUnsigned(salaryKeys[a], salaryKeys[b])
+                : RadixSort.compare(namePool, nameOffsets, nameLengths, a, b, 0);
+    }
+
+    /**
+     * Compares two rows in sort order, breaking ties by row index.
+     */
+    private int compareRows(int a, int b, boolean descending) {
+        int cmp = compareKeys(a, b);
+        if (descending) {
+            cmp = -cmp;
+        }
+        return cmp != 0 ? cmp : Integer.compare(a, b);
+    }
+
+    private void siftUp(int[] heap, int k, boolean descending) {
+        int row = heap[k];
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (compareRows(heap[parent], row, descending) >= 0) {
+                break;
+            }
+            heap[k] = heap[parent];
+            k = parent;
+        }
+        heap[k] = row;
+    }
+
+    private void siftDown(int[] heap, int size, boolean descending) {
+        if (size == 0) {
+            return;
+        }
+        int row = heap[0];
+        int k = 0;
+        int half = size >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            if (child + 1 < size && compareRows(heap[child + 1], heap[child], descending) > 0) {
+                child++;
+            }
+            if (compareRows(row, heap[child], descending) >= 0) {
+                break;
+            }
+            heap[k] = heap[child];
+            k = child;
+        }
+        heap[k] = row;
+    }
+
+    private static int foldAscii(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    /**
+     * Writes the folded chars of a name with the UTF-8 byte patterns of their char values.
+     *
+     * @return the position after the written bytes
+     */
+    private static int encodeFolded(String name, byte[] dest, int pos) {
+        for (int k = 0; k < name.length(); k++) {
+            char c = Character.toLowerCase(Character.toUpperCase(name.charAt(k)));
+            if (c < ASCII_LIMIT) {
+                dest[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                dest[pos++] = (byte) (0xc0 | c >> 6);
+                dest[pos++] = (byte) (0x80 | c & 0x3f);
+            } else {
+                dest[pos++] = (byte) (0xe0 | c >> 12);
+                dest[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+                dest[pos++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,124 @@
+package com.sigmaproject.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Read access to the input files for copying source lines straight to the output.
+ * <p>
+ * Files are opened and memory-mapped on first use. Short ranges are copied from the
+ * mapping into the writer's buffer; long ranges are handed to {@link FileChannel#transferTo}
+ * so that the kernel copies them without passing through the Java heap, while the
+ * writer's content hash reads them from the mapping. Ranges of a file too large to be
+ * mapped at once are read through the writer's buffer when they are hashed.
+ * </p>
+ */
+class SourceFiles implements Closeable {
+
+    /**
+     * Ranges of at least this many bytes are transferred by the kernel.
+     */
+    private static final long TRANSFER_THRESHOLD = 256L << 10;
+
+    private final List<Path> paths;
+    private final FileChannel[] channels;
+    private final MappedByteBuffer[] maps;
+
+    /**
+     * Creates access to the given input files without opening them.
+     *
+     * @param paths the input files, indexed like the {@link com.sigmaproject.utils.LineSpan} file indexes
+     */
+    SourceFiles(List<Path> paths) {
+        this.paths = paths;
+        this.channels = new FileChannel[paths.size()];
+        this.maps = new MappedByteBuffer[paths.size()];
+    }
+
+    /**
+     * Creates a cursor for copying ranges; every writing thread needs its own cursor.
+     *
+     * @return a new cursor
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (int i = 0; i < channels.length; i++) {
+            maps[i] = null;
+            if (channels[i] != null) {
+                try {
+                    channels[i].close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+                channels[i] = null;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private synchronized FileChannel channel(int fileIndex) throws IOException {
+        if (channels[fileIndex] == null) {
+            channels[fileIndex] = FileChannel.open(paths.get(fileIndex), StandardOpenOption.READ);
+        }
+        return channels[fileIndex];
+    }
+
+    /**
+     * Returns the mapping of a whole file, or {@code null} if the file is too large to map at once.
+     */
+    private synchronized MappedByteBuffer map(int fileIndex) throws IOException {
+        if (maps[fileIndex] == null) {
+            FileChannel channel = channel(fileIndex);
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            maps[fileIndex] = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        return maps[fileIndex];
+    }
+
+    /**
+     * Copies ranges of the input files for a single thread, reusing one view per mapped file.
+     */
+    final class Cursor {
+
+        private final ByteBuffer[] views = new ByteBuffer[paths.size()];
+
+        /**
+         * Copies a range of an input file to the writer.
+         *
+         * @param fileIndex position of the file in the input file list
+         * @param offset    byte offset of the range
+         * @param length    length of the range in bytes
+         * @param out       the writer
+         * @throws IOException if reading or writing fails
+         */
+        void copy(int fileIndex, long offset, long length, RecordEncoder out) throws IOException {
+            ByteBuffer view = views[fileIndex];
+            if (view == null) {
+                MappedByteBuffer map = map(fileIndex);
+                view = map != null ? map.duplicate() : null;
+                views[fileIndex] = view;
+            }
+            if (view != null && length < TRANSFER_THRESHOLD) {
+                out.copyFrom(view, (int) offset, (int) length);
+            } else {
+                out.transferFrom(channel(fileIndex), view, offset, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.Department;
+import com.sigmaproject.model.EmployeeStore;
+import com.sigmaproject.model.enums.OrderValue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+import static com.sigmaproject.exception.CustomIllArgException.printErrorMessage;
+import static com.sigmaproject.utils.Constant.ERR_SPILL;
+
+/**
+ * Service class for moving the employees of large departments out of memory.
+ * <p>
+ * When a department reaches the {@code --spill-threshold}, its employees are sorted
+ * in the requested order and written to a temporary run file, each as its ordinal
+ * followed by the binary row format of {@link EmployeeStore#writeRow}, and the
+ * in-memory store is emptied.
+ * The runs are merged into the output file by {@link RunMerger}, which deletes them;
+ * runs that are not merged, for example when the job fails, are deleted by
+ * {@link #deleteRuns} at the end of the job.
+ * </p>
+ */
+class SpillService {
+
+    private static final String RUN_FILE_PREFIX = "sb-run-";
+    private static final String RUN_FILE_SUFFIX = ".bin";
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    /**
+     * Private constructor to prevent instantiation of the service class.
+     */
+    private SpillService() {
+    }
+
+    /**
+     * Spills the employees of a department to a new run file if the department has
+     * reached the spill threshold. The employees are numbered on from the employees
+     * spilled before.
+     *
+     * @param dept   the department
+     * @param params command line parameters
+     */
+    static void spillIfFull(Department dept, CommandLineArgsService params) {
+        spillIfFull(dept, params, null);
+    }
+
+    /**
+     * Spills the employees of a department to a new run file if the department has
+     * reached the spill threshold. If the run cannot be written the employees stay
+     * in memory and the next attempt is made one threshold later.
+     *
+     * @param dept     the department
+     * @param params   command line parameters
+     * @param ordinals the ascending ordinals of the in-memory employees, by row, or
+     *                 {@code null} to number them on from the employees spilled before
+     */
+    static void spillIfFull(Department dept, CommandLineArgsService params, long[] ordinals) {
+        if (!isFull(dept, params)) {
+            return;
+        }
+        EmployeeStore store = dept.getEmployees();
+        long base = dept.getSpilledRuns().getRowCount();
+        int[] order = params.getSortBy() != null
+                ? SortKeys.of(store, params.getSortBy()).radixOrder(OrderValue.DESC.getValue().equals(params.getOrder()))
+                : null;
+        Path file = null;
+        try {
+            file = Files.createTempFile(RUN_FILE_PREFIX, RUN_FILE_SUFFIX);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+                out.writeInt(store.size());
+                for (int i = 0; i < store.size(); i++) {
+                    int row = order != null ? order[i] : i;
+                    out.writeLong(ordinals != null ? ordinals[row] : base + row);
+                    store.writeRow(row, out);
+                }
+            }
+        } catch (IOException e) {
+            printErrorMessage(ERR_SPILL + e.getMessage());
+            deleteQuietly(file);
+            return;
+        }
+        dept.getSpilledRuns().add(file, store);
+        store.clear();
+    }
+
+    /**
+     * Returns whether a department is due to be spilled.
+     *
+     * @param dept   the department
+     * @param params command line parameters
+     * @return {@code true} if the in-memory employees of the department fill a multiple of the spill threshold
+     */
+    static boolean isFull(Department dept, CommandLineArgsService params) {
+        int threshold = params.getSpillThreshold();
+        int size = dept.getEmployees().size();
+        return threshold > 0 && size > 0 && size % threshold == 0;
+    }
+
+    /**
+     * Deletes the run files of the given departments that are left over.
+     *
+     * @param departments the departments of the job
+     */
+    static void deleteRuns(Collection<Department> departments) {
+        for (Department dept : departments) {
+            for (Path file : dept.getSpilledRuns().getFiles()) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    /**
+     * Deletes a run file, ignoring errors.
+     *
+     * @param file the file, or {@code null}
+     */
+    static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // The file stays behind in the temporary directory.
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package com.sigmaproject.service;
 
+import com.sigmaproject.event.StatisticsEvent;
 import com.sigmaproject.model.Department;
-import com.sigmaproject.model.Employee;
+import com.sigmaproject.model.EmployeeStore;
+import com.sigmaproject.model.SalaryStats;
+import com.sigmaproject.model.SpilledRuns;
 import com.sigmaproject.model.enums.OutputValue;
+import com.sigmaproject.utils.Money;
+import com.sigmaproject.utils.Percentiles;
+import com.sigmaproject.utils.QuantileSketch;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.sigmaproject.exception.CustomIllArgException.printErrorMessage;
 import static com.sigmaproject.utils.Constant.*;
@@ -19,6 +24,20 @@ import static com.sigmaproject.utils.Constant.*;
  */
 public class StatisticsService {
 
+    /**
+     * Largest department whose percentiles are computed exactly.
+     */
+    private static final int EXACT_PERCENTILES_LIMIT = 1 << 20;
+
+    /**
+     * Number of salaries sketched by one parallel task.
+     */
+    private static final int SKETCH_CHUNK = 1 << 16;
+
+    private static final double MEDIAN = 0.5;
+    private static final double P90 = 0.9;
+    private static final double P99 = 0.99;
+
     /**
      * Writes statistics for each department.
      *
@@ -26,32 +45,51 @@ public class StatisticsService {
      * @param params command line parameters
      */
     public static void writeStatistics(Map<String, Department> departments, CommandLineArgsService params) {
-        List<Department> sortedDepartments = departments.values().stream()
-                .sorted(Comparator.comparing(Department::getName, String.CASE_INSENSITIVE_ORDER))
-                .collect(Collectors.toList());
+        StatisticsEvent event = new StatisticsEvent();
+        event.begin();
+        Map<String, String[]> columns = new LinkedHashMap<>();
+        for (Department d : departments.values()) {
+            columns.put(d.getName(), statisticsColumns(d, params.isPercentiles()));
+        }
+        writeStatisticsLines(columns, params);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.departments = departments.size();
+            event.percentiles = params.isPercentiles();
+            event.output = params.getOutput();
+            event.commit();
+        }
+    }
+
+    /**
+     * Computes the statistics columns of a department.
+     *
+     * @param d           the department
+     * @param percentiles whether to compute the percentile columns
+     * @return the statistics line and the percentile columns, which are empty unless requested
+     */
+    static String[] statisticsColumns(Department d, boolean percentiles) {
+        return new String[]{createStatisticsLine(d), percentiles ? createPercentileColumns(d) : ""};
+    }
+
+    /**
+     * Writes the statistics of departments whose columns are already computed, in
+     * department name order.
+     *
+     * @param columns the statistics line and the percentile columns by department name
+     * @param params  command line parameters
+     */
+    static void writeStatisticsLines(Map<String, String[]> columns, CommandLineArgsService params) {
+        List<String> names = new ArrayList<>(columns.keySet());
+        names.sort(String.CASE_INSENSITIVE_ORDER);
 
         List<String> statsLines = new ArrayList<>();
-        statsLines.add(STAT_HEAD_LINE);
-
-        for (Department d : sortedDepartments) {
-            List<Double> salaries = d.getEmployees().stream()
-                    .map(Employee::getSalary)
-                    .filter(Objects::nonNull)
-                    .filter(s -> s > 0)
-                    .sorted()
-                    .collect(Collectors.toList());
-
-            String min = DEFAULT_SALARY_VAL_STR;
-            String max = DEFAULT_SALARY_VAL_STR;
-            String mid = DEFAULT_SALARY_VAL_STR;
-
-            if (!salaries.isEmpty()) {
-                min = SalaryService.roundUp2(salaries.get(0));
-                max = SalaryService.roundUp2(salaries.get(salaries.size() - 1));
-                double average = salaries.stream().mapToDouble(Double::doubleValue).average().orElse(0);
-                mid = SalaryService.roundUp2(average);
-            }
-            statsLines.add(String.format(STAT_LINE_STRING_FORMAT, d.getName(), min, max, mid));
+        statsLines.add(params.isPercentiles() ? STAT_HEAD_LINE + STAT_PERCENTILES_HEAD : STAT_HEAD_LINE);
+
+        for (String name : names) {
+            String[] c = columns.get(name);
+            statsLines.add(params.isPercentiles() ? c[0] + c[1] : c[0]);
         }
 
         if (OutputValue.FILE.getValue().equals(params.getOutput())) {
@@ -61,6 +99,148 @@ public class StatisticsService {
         }
     }
 
+    /**
+     * Computes the statistics line of a department.
+     * <p>
+     * When every salary holds a whole number of cents, which is the normal case, min, max
+     * and the average rounded up come straight from the department's {@link SalaryStats},
+     * which were accumulated while the employees were distributed. Otherwise the salaries
+     * are processed as doubles and rounded with {@link SalaryService#roundUp2}.
+     * </p>
+     *
+     * @param d the department
+     * @return the formatted statistics line
+     */
+    private static String createStatisticsLine(Department d) {
+        SalaryStats stats = d.getSalaryStats();
+        if (!stats.isExact()) {
+            return createInexactStatisticsLine(d);
+        }
+        if (stats.getCount() == 0) {
+            return String.format(STAT_LINE_STRING_FORMAT, d.getName(),
+                    DEFAULT_SALARY_VAL_STR, DEFAULT_SALARY_VAL_STR, DEFAULT_SALARY_VAL_STR);
+        }
+        return String.format(STAT_LINE_STRING_FORMAT, d.getName(), Money.format(stats.getMinCents()),
+                Money.format(stats.getMaxCents()), Money.format(stats.averageCents()));
+    }
+
+    /**
+     * Computes the statistics line of a department with salaries that are not whole cents.
+     * <p>
+     * For a department with spilled runs the summary of the spilled salaries is combined
+     * with the salaries still in memory, so the runs are not read again.
+     * </p>
+     *
+     * @param d the department
+     * @return the formatted statistics line
+     */
+    private static String createInexactStatisticsLine(Department d) {
+        EmployeeStore store = d.getEmployees();
+        SpilledRuns spilled = d.getSpilledRuns();
+        if (!spilled.getFiles().isEmpty()) {
+            DoubleSummaryStatistics summary = new DoubleSummaryStatistics();
+            summary.combine(spilled.getSalaries());
+            for (int i = 0; i < store.size(); i++) {
+                double salary = store.getSalary(i);
+                if (salary > 0) {
+                    summary.accept(salary);
+                }
+            }
+            if (summary.getCount() == 0) {
+                return String.format(STAT_LINE_STRING_FORMAT, d.getName(),
+                        DEFAULT_SALARY_VAL_STR, DEFAULT_SALARY_VAL_STR, DEFAULT_SALARY_VAL_STR);
+            }
+            return String.format(STAT_LINE_STRING_FORMAT, d.getName(), SalaryService.roundUp2(summary.getMin()),
+                    SalaryService.roundUp2(summary.getMax()), SalaryService.roundUp2(summary.getAverage()));
+        }
+        double[] salaries = IntStream.range(0, store.size())
+                .mapToDouble(store::getSalary)
+                .filter(s -> s > 0)
+                .sorted()
+                .toArray();
+
+        String min = DEFAULT_SALARY_VAL_STR;
+        String max = DEFAULT_SALARY_VAL_STR;
+        String mid = DEFAULT_SALARY_VAL_STR;
+
+        if (salaries.length > 0) {
+            min = SalaryService.roundUp2(salaries[0]);
+            max = SalaryService.roundUp2(salaries[salaries.length - 1]);
+            double average = Arrays.stream(salaries).average().orElse(0);
+            mid = SalaryService.roundUp2(average);
+        }
+        return String.format(STAT_LINE_STRING_FORMAT, d.getName(), min, max, mid);
+    }
+
+    /**
+     * Computes the median, p90 and p99 columns of a department.
+     * <p>
+     * Percentiles use the nearest-rank definition. Departments with up to
+     * {@link #EXACT_PERCENTILES_LIMIT} salaries get exact values, selected from a
+     * primitive copy of the salary column in linear time. Larger departments get
+     * estimates from a {@link QuantileSketch} with a relative error of at most
+     * {@link QuantileSketch#DEFAULT_RELATIVE_ACCURACY}; the sketch is built over chunks of the
+     * column in parallel and the partial sketches are merged. Departments with spilled
+     * runs always get estimates: the sketch of the spilled salaries is merged in.
+     * </p>
+     *
+     * @param d the department
+     * @return the formatted percentile columns
+     */
+    private static String createPercentileColumns(Department d) {
+        EmployeeStore store = d.getEmployees();
+        double median;
+        double p90;
+        double p99;
+        SpilledRuns spilled = d.getSpilledRuns();
+        if (store.size() <= EXACT_PERCENTILES_LIMIT && spilled.getFiles().isEmpty()) {
+            double[] salaries = new double[store.size()];
+            int n = 0;
+            for (int i = 0; i < store.size(); i++) {
+                double salary = store.getSalary(i);
+                if (salary > 0) {
+                    salaries[n++] = salary;
+                }
+            }
+            if (n == 0) {
+                return String.format(STAT_PERCENTILES_STRING_FORMAT,
+                        DEFAULT_SALARY_VAL_STR, DEFAULT_SALARY_VAL_STR, DEFAULT_SALARY_VAL_STR);
+            }
+            int medianIndex = Percentiles.index(n, MEDIAN);
+            int p90Index = Percentiles.index(n, P90);
+            int p99Index = Percentiles.index(n, P99);
+            median = Percentiles.select(salaries, 0, n, medianIndex);
+            p90 = Percentiles.select(salaries, medianIndex, n, p90Index);
+            p99 = Percentiles.select(salaries, p90Index, n, p99Index);
+        } else {
+            QuantileSketch sketch = IntStream.range(0, (store.size() + SKETCH_CHUNK - 1) / SKETCH_CHUNK)
+                    .parallel()
+                    .mapToObj(chunk -> {
+                        QuantileSketch part = new QuantileSketch(QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+                        int end = Math.min(store.size(), (chunk + 1) * SKETCH_CHUNK);
+                        for (int i = chunk * SKETCH_CHUNK; i < end; i++) {
+                            part.add(store.getSalary(i));
+                        }
+                        return part;
+                    })
+                    .reduce((a, b) -> {
+                        a.merge(b);
+                        return a;
+                    })
+                    .orElseGet(() -> new QuantileSketch(QuantileSketch.DEFAULT_RELATIVE_ACCURACY));
+            sketch.merge(spilled.getSketch());
+            if (sketch.getCount() == 0) {
+                return String.format(STAT_PERCENTILES_STRING_FORMAT,
+                        DEFAULT_SALARY_VAL_STR, DEFAULT_SALARY_VAL_STR, DEFAULT_SALARY_VAL_STR);
+            }
+            median = sketch.quantile(MEDIAN);
+            p90 = sketch.quantile(P90);
+            p99 = sketch.quantile(P99);
+        }
+        return String.format(STAT_PERCENTILES_STRING_FORMAT,
+                SalaryService.roundUp2(median), SalaryService.roundUp2(p90), SalaryService.roundUp2(p99));
+    }
+
     /**
      * Writes statistics to a file.
      *
@@ -68,7 +248,7 @@ public class StatisticsService {
      * @param params command line parameters
      */
     private static void writeStatsToFile(List<String> statsLines, CommandLineArgsService params) {
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(params.getPath()))) {
+        try (BufferedWriter writer = Files.newBufferedWriter(params.resolve(params.getPath()))) {
             for (String line : statsLines) {
                 writer.write(line);
                 writer.newLine();
@@ -0,0 +1,298 @@
+package com.sigmaproject.service;
+
+import com.sigmaproject.model.Department;
+import com.sigmaproject.model.Employee;
+import com.sigmaproject.model.EmployeeStore;
+import com.sigmaproject.model.Manager;
+import com.sigmaproject.utils.IdIndex;
+import com.sigmaproject.utils.RadixSort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.sigmaproject.exception.CustomIllArgException.printErrorMessage;
+import static com.sigmaproject.utils.Constant.*;
+
+/**
+ * Joins employees to departments while the input files are read.
+ * <p>
+ * A manager opens its department as soon as it is read. An employee whose manager is
+ * already known goes straight into the department, and through it into the department's
+ * spill runs; only employees whose manager has not been read yet wait in a pending buffer,
+ * grouped by manager ID, until the manager arrives. When the buffer holds more than
+ * {@code --pending-limit} employees it is written to a temporary file and resolved against
+ * the complete manager index at the end. Employees still without a manager at the end are
+ * the orphans.
+ * </p>
+ * <p>
+ * Every accepted employee is numbered in read order. Departments that received employees
+ * out of that order, from a resolved pending employee, are reordered by number before they
+ * are spilled and at the end, and the numbers are the ordinals of their spilled runs, so
+ * departments, error lines and their order are the same as for the staged join.
+ * </p>
+ */
+final class StreamJoin implements AutoCloseable {
+
+    private static final String PENDING_FILE_PREFIX = "sb-pending-";
+    private static final String PENDING_FILE_SUFFIX = ".bin";
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    private final IdIndex<Manager> managersById;
+    private final Map<String, Department> departments;
+    private final CommandLineArgsService params;
+
+    private final Map<String, Sequence> sequences = new HashMap<>();
+    private final List<String> duplicateManagerLines = new ArrayList<>();
+    private final Map<String, List<Pending>> pending = new LinkedHashMap<>();
+    private final EmployeeStore scratch = new EmployeeStore();
+    private int pendingCount;
+    private long nextSeq;
+
+    private Path pendingFile;
+    private DataOutputStream pendingOut;
+    private int pendingSpilled;
+
+    /**
+     * Constructs a join that fills the given departments.
+     *
+     * @param managersById index of the managers read so far
+     * @param departments  map of departments to fill
+     * @param params       command line parameters
+     */
+    StreamJoin(IdIndex<Manager> managersById, Map<String, Department> departments, CommandLineArgsService params) {
+        this.managersById = managersById;
+        this.departments = departments;
+        this.params = params;
+    }
+
+    /**
+     * Opens the department of a newly accepted manager, or reports a duplicate manager
+     * for it, and routes the employees that were waiting for the manager.
+     *
+     * @param manager the manager
+     */
+    void acceptManager(Manager manager) {
+        Department dept = departments.get(manager.getDepartment());
+        if (dept == null) {
+            dept = new Department(manager.getDepartment(), manager);
+            departments.put(dept.getName(), dept);
+            sequences.put(dept.getName(), new Sequence());
+        } else {
+            duplicateManagerLines.add(DepartmentService.duplicateManagerLine(manager));
+        }
+        List<Pending> waiting = pending.remove(manager.getId());
+        if (waiting != null) {
+            pendingCount -= waiting.size();
+            for (Pending p : waiting) {
+                scratch.clear();
+                scratch.add(p.employee);
+                route(dept, scratch, 0, p.seq);
+            }
+        }
+    }
+
+    /**
+     * Routes a newly accepted employee to its department, or parks it in the pending
+     * buffer if its manager has not been read yet. Only a parked employee becomes an
+     * {@link Employee} object.
+     *
+     * @param rows the rows holding the employee
+     * @param row  position of the employee in the rows
+     * @throws IOException if the pending buffer cannot be written to its temporary file
+     */
+    void acceptEmployee(EmployeeStore rows, int row) throws IOException {
+        long seq = nextSeq++;
+        String managerId = rows.getManagerId(row);
+        Manager manager = managersById.get(managerId);
+        if (manager != null) {
+            route(departments.get(manager.getDepartment()), rows, row, seq);
+            return;
+        }
+        pending.computeIfAbsent(managerId, k -> new ArrayList<>(1)).add(new Pending(seq, rows.get(row)));
+        if (++pendingCount > params.getPendingLimit()) {
+            spillPending();
+        }
+    }
+
+    /**
+     * Resolves the spilled pending employees, restores the read order in the departments
+     * and appends the duplicate manager and orphan error lines.
+     *
+     * @param errorLines list to collect error messages
+     */
+    void finish(List<String> errorLines) {
+        List<Pending> orphans = new ArrayList<>(pendingCount);
+        pending.values().forEach(orphans::addAll);
+        pending.clear();
+        pendingCount = 0;
+
+        if (pendingFile != null) {
+            try {
+                pendingOut.close();
+                resolveSpilledPending(orphans);
+            } catch (IOException e) {
+                printErrorMessage(ERR_SPILL + e.getMessage());
+            } finally {
+                close();
+            }
+        }
+
+        for (Map.Entry<String, Sequence> entry : sequences.entrySet()) {
+            Department dept = departments.get(entry.getKey());
+            Sequence sequence = entry.getValue();
+            if (sequence.outOfOrder) {
+                restoreReadOrder(dept.getEmployees(), sequence);
+            }
+            if (!dept.getSpilledRuns().getFiles().isEmpty()) {
+                dept.getSpilledRuns().setMemoryOrdinals(Arrays.copyOf(sequence.values, sequence.size));
+            }
+        }
+
+        errorLines.addAll(duplicateManagerLines);
+        params.getMetrics().errors(REASON_DUPLICATE_MANAGER, duplicateManagerLines.size());
+        params.getMetrics().errors(REASON_ORPHAN_EMPLOYEE, orphans.size());
+        orphans.sort((a, b) -> Long.compare(a.seq, b.seq));
+        for (Pending orphan : orphans) {
+            errorLines.add(orphan.employee.toString());
+        }
+    }
+
+    /**
+     * Closes and deletes the temporary pending file, if there is one. Called when the join
+     * ends, also if reading failed before {@link #finish}.
+     */
+    @Override
+    public void close() {
+        if (pendingFile == null) {
+            return;
+        }
+        try {
+            pendingOut.close();
+        } catch (IOException ignored) {
+            // The file is deleted anyway.
+        }
+        SpillService.deleteQuietly(pendingFile);
+        pendingFile = null;
+    }
+
+    /**
+     * Adds an employee to a department and its statistics, spilling the department
+     * if it reached the spill threshold.
+     */
+    private void route(Department dept, EmployeeStore rows, int row, long seq) {
+        dept.getEmployees().addRow(rows, row);
+        dept.getSalaryStats().add(rows.getSalary(row));
+        Sequence sequence = sequences.get(dept.getName());
+        sequence.add(seq);
+        if (SpillService.isFull(dept, params)) {
+            if (sequence.outOfOrder) {
+                restoreReadOrder(dept.getEmployees(), sequence);
+            }
+            SpillService.spillIfFull(dept, params, sequence.values);
+            if (dept.getEmployees().isEmpty()) {
+                sequence.clear();
+            }
+        }
+    }
+
+    /**
+     * Appends the pending employees to the temporary pending file and empties the buffer.
+     */
+    private void spillPending() throws IOException {
+        if (pendingOut == null) {
+            pendingFile = Files.createTempFile(PENDING_FILE_PREFIX, PENDING_FILE_SUFFIX);
+            pendingOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(pendingFile), BUFFER_SIZE));
+        }
+        for (List<Pending> waiting : pending.values()) {
+            for (Pending p : waiting) {
+                scratch.clear();
+                scratch.add(p.employee);
+                pendingOut.writeLong(p.seq);
+                scratch.writeRow(0, pendingOut);
+                pendingSpilled++;
+            }
+        }
+        pending.clear();
+        pendingCount = 0;
+    }
+
+    /**
+     * Reads the spilled pending employees back, routing those whose manager arrived
+     * after they were spilled and collecting the others as orphans.
+     */
+    private void resolveSpilledPending(List<Pending> orphans) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(pendingFile), BUFFER_SIZE))) {
+            for (int i = 0; i < pendingSpilled; i++) {
+                long seq = in.readLong();
+                scratch.clear();
+                scratch.readRow(in);
+                Manager manager = managersById.get(scratch.getManagerId(0));
+                if (manager != null) {
+                    route(departments.get(manager.getDepartment()), scratch, 0, seq);
+                } else {
+                    orphans.add(new Pending(seq, scratch.get(0)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reorders the in-memory rows of a department by their read numbers.
+     */
+    private static void restoreReadOrder(EmployeeStore store, Sequence sequence) {
+        store.permute(RadixSort.sortUnsigned(Arrays.copyOf(sequence.values, sequence.size), false));
+        Arrays.sort(sequence.values, 0, sequence.size);
+        sequence.outOfOrder = false;
+    }
+
+    /**
+     * An employee waiting for its manager, with its read number.
+     */
+    private static final class Pending {
+
+        final long seq;
+        final Employee employee;
+
+        Pending(long seq, Employee employee) {
+            this.seq = seq;
+            this.employee = employee;
+        }
+    }
+
+    /**
+     * Read numbers of the in-memory rows of a department.
+     */
+    private static final class Sequence {
+
+        long[] values = new long[8];
+        int size;
+        boolean outOfOrder;
+
+        void add(long seq) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            if (size > 0 && values[size - 1] > seq) {
+                outOfOrder = true;
+            }
+            values[size++] = seq;
+        }
+
+        void clear() {
+            size = 0;
+            outOfOrder = false;
+        }
+    }
+}
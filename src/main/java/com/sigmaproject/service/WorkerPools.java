@@ -0,0 +1,177 @@
+package com.sigmaproject.service;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source of the worker pools of the parallel stages.
+ * <p>
+ * A command-line run uses {@link #PER_STAGE}: every stage creates its own pool, with
+ * threads measured by the {@link RunMetrics} of the run, and shuts it down when it is
+ * done. The daemon uses a {@link #shared()} instance instead, which keeps one pool per
+ * kind and size for the lifetime of the daemon, so that jobs reuse warm threads; jobs
+ * asking for the same number of threads share that pool. The CPU time and allocation of
+ * shared pool threads are not attributed to a job. A task submitted to a shared thread
+ * pool runs with the console of the job that submitted it, see {@link JobConsole#bind}.
+ * </p>
+ */
+final class WorkerPools {
+
+    /**
+     * Pools created for a single stage and shut down after it.
+     */
+    static final WorkerPools PER_STAGE = new WorkerPools(false);
+
+    private final boolean shared;
+    private final ConcurrentMap<Integer, ExecutorService> fixedPools = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, ExecutorService> boundedPools = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, ForkJoinPool> forkJoinPools = new ConcurrentHashMap<>();
+
+    private WorkerPools(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Creates pools that are kept until {@link #close()}.
+     *
+     * @return the shared pools
+     */
+    static WorkerPools shared() {
+        return new WorkerPools(true);
+    }
+
+    /**
+     * Returns a pool with a fixed number of threads and an unbounded task queue.
+     *
+     * @param threads the number of threads
+     * @param metrics the metrics of the run
+     * @return the pool
+     */
+    ExecutorService fixedPool(int threads, RunMetrics metrics) {
+        if (!shared) {
+            return Executors.newFixedThreadPool(threads, metrics.threadFactory());
+        }
+        return new JobTasks(fixedPools.computeIfAbsent(threads, n -> Executors.newFixedThreadPool(n, daemonThreads())));
+    }
+
+    /**
+     * Returns a pool with a fixed number of threads and a task queue of four tasks per
+     * thread; when the queue is full the submitting thread runs the task itself.
+     *
+     * @param threads the number of threads
+     * @param metrics the metrics of the run
+     * @return the pool
+     */
+    ExecutorService boundedPool(int threads, RunMetrics metrics) {
+        if (!shared) {
+            return newBoundedPool(threads, metrics.threadFactory());
+        }
+        return new JobTasks(boundedPools.computeIfAbsent(threads, n -> newBoundedPool(n, daemonThreads())));
+    }
+
+    /**
+     * Returns a fork-join pool.
+     *
+     * @param parallelism the parallelism of the pool
+     * @param metrics     the metrics of the run
+     * @return the pool
+     */
+    ForkJoinPool forkJoinPool(int parallelism, RunMetrics metrics) {
+        if (!shared) {
+            return new ForkJoinPool(parallelism, metrics.forkJoinThreadFactory(), null, false);
+        }
+        return forkJoinPools.computeIfAbsent(parallelism, n -> new ForkJoinPool(n,
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false));
+    }
+
+    /**
+     * Releases a pool after a stage. A pool of a single stage is shut down, interrupting
+     * tasks that are still running, and its threads are awaited for the metrics; a shared
+     * pool stays as it is.
+     *
+     * @param pool    the pool returned by this instance
+     * @param metrics the metrics of the run
+     */
+    void release(ExecutorService pool, RunMetrics metrics) {
+        if (shared) {
+            return;
+        }
+        pool.shutdownNow();
+        metrics.awaitTermination(pool);
+    }
+
+    /**
+     * Shuts down the shared pools.
+     */
+    void close() {
+        fixedPools.values().forEach(ExecutorService::shutdown);
+        boundedPools.values().forEach(ExecutorService::shutdown);
+        forkJoinPools.values().forEach(ExecutorService::shutdown);
+    }
+
+    /**
+     * View of a shared pool for one job that binds every task to the console of the
+     * submitting thread. The view cannot shut the pool down.
+     */
+    private static final class JobTasks extends AbstractExecutorService {
+
+        private final ExecutorService pool;
+
+        JobTasks(ExecutorService pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            pool.execute(JobConsole.bind(task));
+        }
+
+        @Override
+        public void shutdown() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return pool.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return pool.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return pool.awaitTermination(timeout, unit);
+        }
+    }
+
+    private static ExecutorService newBoundedPool(int threads, ThreadFactory factory) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), factory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static ThreadFactory daemonThreads() {
+        ThreadFactory threads = Executors.defaultThreadFactory();
+        return task -> {
+            Thread thread = threads.newThread(task);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -90,6 +90,316 @@ public class Constant {
      */
     public static final String PATH = "path";
 
+    /**
+     * The string used for the threads parameter.
+     */
+    public static final String THREADS = "threads";
+
+    /**
+     * The string used for the io-threads parameter.
+     */
+    public static final String IO_THREADS = "io-threads";
+
+    /**
+     * The string used for the mmap parameter.
+     */
+    public static final String MMAP = "mmap";
+
+    /**
+     * The string used for the passthrough parameter.
+     */
+    public static final String PASSTHROUGH = "passthrough";
+
+    /**
+     * The string used for the percentiles parameter.
+     */
+    public static final String PERCENTILES = "percentiles";
+
+    /**
+     * The string used for the parallel-sort parameter.
+     */
+    public static final String PARALLEL_SORT = "parallel-sort";
+
+    /**
+     * The string used for the limit parameter.
+     */
+    public static final String LIMIT = "limit";
+
+    /**
+     * The string used for the spill-threshold parameter.
+     */
+    public static final String SPILL_THRESHOLD = "spill-threshold";
+
+    /**
+     * The string used for the stream-join parameter.
+     */
+    public static final String STREAM_JOIN = "stream-join";
+
+    /**
+     * The string used for the pending-limit parameter.
+     */
+    public static final String PENDING_LIMIT = "pending-limit";
+
+    /**
+     * Default number of employees the streaming join keeps in memory while their managers are unknown.
+     */
+    public static final int DEFAULT_PENDING_LIMIT = 1 << 16;
+
+    /**
+     * The string used for the parse-cache parameter.
+     */
+    public static final String PARSE_CACHE = "parse-cache";
+
+    /**
+     * The string used for the invalidate-cache parameter.
+     */
+    public static final String INVALIDATE_CACHE = "invalidate-cache";
+
+    /**
+     * The directory of the parse cache, relative to the input directory.
+     */
+    public static final String PARSE_CACHE_DIR = ".sbcache";
+
+    /**
+     * The string used for the snapshot parameter.
+     */
+    public static final String SNAPSHOT = "snapshot";
+
+    /**
+     * The string used for the delta parameter.
+     */
+    public static final String DELTA = "delta";
+
+    /**
+     * The directory of the snapshot, relative to the input directory.
+     */
+    public static final String SNAPSHOT_DIR = ".sbsnapshot";
+
+    /**
+     * The name of the manifest of the department files in the output directory.
+     */
+    public static final String OUTPUT_MANIFEST = ".sbmanifest";
+
+    /**
+     * The suffix of temporary files that are renamed into place when complete.
+     */
+    public static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /**
+     * Template of the summary of written and unchanged output files.
+     */
+    public static final String OUTPUT_SUMMARY_TEMPLATE = "Output files written: %d, unchanged: %d";
+
+    /**
+     * The string representing an upsert record of a delta file.
+     */
+    public static final String UPSERT = "Upsert";
+
+    /**
+     * The string representing a delete record of a delta file.
+     */
+    public static final String DELETE = "Delete";
+
+    /**
+     * The string used for the input directory parameter.
+     */
+    public static final String INPUT_DIR = "input-dir";
+
+    /**
+     * The string used for the output directory parameter.
+     */
+    public static final String OUTPUT_DIR = "output-dir";
+
+    /**
+     * Directory the .sb files are read from by default.
+     */
+    public static final String DEFAULT_INPUT_DIR = ".";
+
+    /**
+     * Directory the department files and the error log are written to by default.
+     */
+    public static final String DEFAULT_OUTPUT_DIR = "output";
+
+    /**
+     * The string used for the daemon's port parameter.
+     */
+    public static final String PORT = "port";
+
+    /**
+     * The string used for the daemon's parameter of concurrent jobs.
+     */
+    public static final String JOBS = "jobs";
+
+    /**
+     * The string used for the client's parameter of the daemon port.
+     */
+    public static final String DAEMON_PORT = "daemon-port";
+
+    /**
+     * Loopback port the daemon listens on by default.
+     */
+    public static final int DEFAULT_DAEMON_PORT = 7341;
+
+    /**
+     * Template of the message printed when the daemon is ready.
+     */
+    public static final String DAEMON_STARTED_TEMPLATE = "Daemon listening on %s:%d";
+
+    /**
+     * Number of connections whose job requests the daemon reads at the same time.
+     */
+    public static final int DAEMON_HANDSHAKE_THREADS = 4;
+
+    /**
+     * Time in milliseconds a client has to send its whole job request to the daemon.
+     */
+    public static final int DAEMON_HANDSHAKE_TIMEOUT_MS = 10_000;
+
+    /**
+     * The directory of the daemon tokens, relative to the user's home directory.
+     */
+    public static final String DAEMON_TOKEN_DIR = ".sigmabank";
+
+    /**
+     * Template of the name of the token file of the daemon on a port.
+     */
+    public static final String DAEMON_TOKEN_FILE_TEMPLATE = "daemon-%d.token";
+
+    /**
+     * The string used for the metrics parameter.
+     */
+    public static final String METRICS = "metrics";
+
+    /**
+     * Name of the stage that reads the input files.
+     */
+    public static final String STAGE_READ = "read";
+
+    /**
+     * Name of the stage that creates the departments.
+     */
+    public static final String STAGE_CREATE_DEPARTMENTS = "create-departments";
+
+    /**
+     * Name of the stage that distributes the employees to their departments.
+     */
+    public static final String STAGE_DISTRIBUTE_EMPLOYEES = "distribute-employees";
+
+    /**
+     * Name of the stage that removes departments without a manager.
+     */
+    public static final String STAGE_REMOVE_EMPTY_DEPARTMENTS = "remove-empty-departments";
+
+    /**
+     * Name of the stage that writes the snapshot.
+     */
+    public static final String STAGE_SNAPSHOT = "snapshot";
+
+    /**
+     * Name of the stage that applies the delta files to the snapshot.
+     */
+    public static final String STAGE_APPLY_DELTA = "apply-delta";
+
+    /**
+     * Name of the stage that sorts the employees.
+     */
+    public static final String STAGE_SORT = "sort";
+
+    /**
+     * Name of the stage that writes the department files.
+     */
+    public static final String STAGE_WRITE_OUTPUT = "write-output";
+
+    /**
+     * Name of the stage that writes the error log.
+     */
+    public static final String STAGE_WRITE_ERROR_LOG = "write-error-log";
+
+    /**
+     * Name of the stage that computes and writes the statistics.
+     */
+    public static final String STAGE_STATISTICS = "statistics";
+
+    /**
+     * Error reason of input lines that cannot be parsed or repeat an ID.
+     */
+    public static final String REASON_REJECTED_LINE = "rejected-line";
+
+    /**
+     * Error reason of managers of a department that already has a manager.
+     */
+    public static final String REASON_DUPLICATE_MANAGER = "duplicate-manager";
+
+    /**
+     * Error reason of employees without a known manager.
+     */
+    public static final String REASON_ORPHAN_EMPLOYEE = "orphan-employee";
+
+    /**
+     * The string used for the generator's rows parameter.
+     */
+    public static final String ROWS = "rows";
+
+    /**
+     * The string used for the generator's departments parameter.
+     */
+    public static final String DEPARTMENTS = "departments";
+
+    /**
+     * The string used for the generator's shards parameter.
+     */
+    public static final String SHARDS = "shards";
+
+    /**
+     * The string used for the generator's distribution parameter.
+     */
+    public static final String DISTRIBUTION = "distribution";
+
+    /**
+     * The string used for the generator's zipf-exponent parameter.
+     */
+    public static final String ZIPF_EXPONENT = "zipf-exponent";
+
+    /**
+     * The string used for the generator's invalid-salary-ratio parameter.
+     */
+    public static final String INVALID_SALARY_RATIO = "invalid-salary-ratio";
+
+    /**
+     * The string used for the generator's duplicate-manager-ratio parameter.
+     */
+    public static final String DUPLICATE_MANAGER_RATIO = "duplicate-manager-ratio";
+
+    /**
+     * The string used for the generator's duplicate-id-ratio parameter.
+     */
+    public static final String DUPLICATE_ID_RATIO = "duplicate-id-ratio";
+
+    /**
+     * The string used for the generator's orphan-ratio parameter.
+     */
+    public static final String ORPHAN_RATIO = "orphan-ratio";
+
+    /**
+     * The string used for the generator's whitespace-ratio parameter.
+     */
+    public static final String WHITESPACE_RATIO = "whitespace-ratio";
+
+    /**
+     * The string used for the generator's seed parameter.
+     */
+    public static final String SEED = "seed";
+
+    /**
+     * The string used for the generator's dir parameter.
+     */
+    public static final String DIR = "dir";
+
+    /**
+     * The name prefix of the generated shard files.
+     */
+    public static final String SHARD_FILE_PREFIX = "shard";
+
     /**
      * The string representation of double dash used in command-line arguments.
      */
@@ -110,6 +420,16 @@ public class Constant {
      */
     public static final String STAT_HEAD_LINE = "department, min, max, mid";
 
+    /**
+     * The header columns appended to the statistics output with the percentiles option.
+     */
+    public static final String STAT_PERCENTILES_HEAD = ", median, p90, p99";
+
+    /**
+     * String format for the percentile columns appended to a statistics line.
+     */
+    public static final String STAT_PERCENTILES_STRING_FORMAT = ", %s, %s, %s";
+
     /**
      * Default value for salary represented as a string.
      */
@@ -155,6 +475,136 @@ public class Constant {
      */
     public static final String INCORRECT_ORDER_PARAM = "Incorrect value for --order parameter: ";
 
+    /**
+     * Error message for incorrect threads parameter values.
+     */
+    public static final String INCORRECT_THREADS_PARAM = "Incorrect value for --threads parameter: ";
+
+    /**
+     * Error message for the percentiles option without the --stat argument.
+     */
+    public static final String PERCENTILES_ERROR_MESSAGE = "The --percentiles option cannot be specified without the --stat argument";
+
+    /**
+     * Error message for incorrect limit parameter values.
+     */
+    public static final String INCORRECT_LIMIT_PARAM = "Incorrect value for --limit parameter: ";
+
+    /**
+     * Error message for incorrect io-threads parameter values.
+     */
+    public static final String INCORRECT_IO_THREADS_PARAM = "Incorrect value for --io-threads parameter: ";
+
+    /**
+     * Error message for incorrect input directory parameter value.
+     */
+    public static final String INCORRECT_INPUT_DIR_PARAM = "Incorrect value for --input-dir parameter: ";
+
+    /**
+     * Error message for incorrect output directory parameter value.
+     */
+    public static final String INCORRECT_OUTPUT_DIR_PARAM = "Incorrect value for --output-dir parameter: ";
+
+    /**
+     * Error message for incorrect port parameter value.
+     */
+    public static final String INCORRECT_PORT_PARAM = "Incorrect value for --port parameter: ";
+
+    /**
+     * Error message for incorrect jobs parameter value.
+     */
+    public static final String INCORRECT_JOBS_PARAM = "Incorrect value for --jobs parameter: ";
+
+    /**
+     * Error message for incorrect daemon port parameter value.
+     */
+    public static final String INCORRECT_DAEMON_PORT_PARAM = "Incorrect value for --daemon-port parameter: ";
+
+    /**
+     * Error message for incorrect metrics parameter value.
+     */
+    public static final String INCORRECT_METRICS_PARAM = "Incorrect value for --metrics parameter: ";
+
+    /**
+     * Error message for incorrect rows parameter values.
+     */
+    public static final String INCORRECT_ROWS_PARAM = "Incorrect value for --rows parameter: ";
+
+    /**
+     * Error message for incorrect departments parameter values.
+     */
+    public static final String INCORRECT_DEPARTMENTS_PARAM = "Incorrect value for --departments parameter: ";
+
+    /**
+     * Error message for incorrect shards parameter values.
+     */
+    public static final String INCORRECT_SHARDS_PARAM = "Incorrect value for --shards parameter: ";
+
+    /**
+     * Error message for incorrect distribution parameter values.
+     */
+    public static final String INCORRECT_DISTRIBUTION_PARAM = "Incorrect value for --distribution parameter: ";
+
+    /**
+     * Error message for incorrect zipf-exponent parameter values.
+     */
+    public static final String INCORRECT_ZIPF_EXPONENT_PARAM = "Incorrect value for --zipf-exponent parameter: ";
+
+    /**
+     * Error message for incorrect seed parameter values.
+     */
+    public static final String INCORRECT_SEED_PARAM = "Incorrect value for --seed parameter: ";
+
+    /**
+     * Error message for incorrect ratio parameter values; followed by the parameter and its value.
+     */
+    public static final String INCORRECT_RATIO_PARAM = "Incorrect value for ratio parameter --";
+
+    /**
+     * Error message for employee line ratios that add up to more than one.
+     */
+    public static final String RATIO_SUM_ERROR_MESSAGE = "The --invalid-salary-ratio, --duplicate-id-ratio and --orphan-ratio values must not add up to more than 1";
+
+    /**
+     * Error message for failures while writing generated shard files.
+     */
+    public static final String ERR_GENERATE = "Error writing generated files: ";
+
+    /**
+     * Error message for incorrect spill-threshold parameter values.
+     */
+    public static final String INCORRECT_SPILL_THRESHOLD_PARAM = "Incorrect value for --spill-threshold parameter: ";
+
+    /**
+     * Error message for the pending-limit option without the --stream-join argument.
+     */
+    public static final String PENDING_LIMIT_ERROR_MESSAGE = "The --pending-limit option cannot be specified without the --stream-join argument";
+
+    /**
+     * Error message for incorrect pending-limit parameter values.
+     */
+    public static final String INCORRECT_PENDING_LIMIT_PARAM = "Incorrect value for --pending-limit parameter: ";
+
+    /**
+     * Error message for the invalidate-cache option without the --parse-cache argument.
+     */
+    public static final String INVALIDATE_CACHE_ERROR_MESSAGE = "The --invalidate-cache option cannot be specified without the --parse-cache argument";
+
+    /**
+     * Error message for the parse cache combined with the streaming join.
+     */
+    public static final String PARSE_CACHE_ERROR_MESSAGE = "The --parse-cache option cannot be combined with --stream-join";
+
+    /**
+     * Error message for the snapshot combined with the spill threshold.
+     */
+    public static final String SNAPSHOT_ERROR_MESSAGE = "The --snapshot option cannot be combined with --spill-threshold";
+
+    /**
+     * Error message for the delta mode combined with options of a full run.
+     */
+    public static final String DELTA_ERROR_MESSAGE = "The --delta option cannot be combined with --snapshot, --stream-join, --parse-cache or --spill-threshold";
+
     /**
      * Error message for indicating a duplicate manager for a department.
      */
@@ -165,6 +615,46 @@ public class Constant {
      */
     public static final String FILE_WRITE_ERR = "File write error ";
 
+    /**
+     * Error message for failures while spilling employees to a temporary file.
+     */
+    public static final String ERR_SPILL = "Spill file error ";
+
+    /**
+     * Error message for failures while reading or writing the parse cache.
+     */
+    public static final String ERR_PARSE_CACHE = "Parse cache error ";
+
+    /**
+     * Error message for failures while reading or writing the snapshot.
+     */
+    public static final String ERR_SNAPSHOT = "Snapshot error ";
+
+    /**
+     * Error message for failures while writing the manifest of the output directory.
+     */
+    public static final String ERR_OUTPUT_MANIFEST = "Output manifest error ";
+
+    /**
+     * Error message for failures of the daemon.
+     */
+    public static final String ERR_DAEMON = "Daemon error: ";
+
+    /**
+     * Error message for failures while creating or reading the daemon token.
+     */
+    public static final String ERR_DAEMON_TOKEN = "Daemon token error: ";
+
+    /**
+     * Error message sent to a client whose job request has no valid daemon token.
+     */
+    public static final String ERR_DAEMON_REJECTED = "Daemon error: the job was rejected, the daemon token does not match";
+
+    /**
+     * Error message for failures while writing the metrics report.
+     */
+    public static final String ERR_METRICS = "Error writing metrics report: ";
+
     /**
      * Error message when there is an issue writing to the error log file.
      */
@@ -0,0 +1,64 @@
+package com.sigmaproject.utils;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Running hash of the content of a file, updated as its bytes are produced.
+ * <p>
+ * The hash combines a CRC32C and a CRC32 of the bytes into 64 bits and counts them;
+ * both checksums are computed with hardware support, so hashing keeps up with rendering.
+ * </p>
+ */
+public final class ContentHash {
+
+    private final CRC32C crc32c = new CRC32C();
+    private final CRC32 crc32 = new CRC32();
+    private long length;
+
+    /**
+     * Adds bytes to the hash.
+     *
+     * @param bytes  the array holding the bytes
+     * @param offset index of the first byte
+     * @param count  number of bytes
+     */
+    public void update(byte[] bytes, int offset, int count) {
+        crc32c.update(bytes, offset, count);
+        crc32.update(bytes, offset, count);
+        length += count;
+    }
+
+    /**
+     * Adds the remaining bytes of a buffer to the hash, for example a range of a mapped
+     * file, without copying them to the heap. The buffer's position is moved to its limit.
+     *
+     * @param bytes the buffer holding the bytes between its position and limit
+     */
+    public void update(ByteBuffer bytes) {
+        int start = bytes.position();
+        crc32c.update(bytes);
+        bytes.position(start);
+        crc32.update(bytes);
+        length += bytes.position() - start;
+    }
+
+    /**
+     * Returns the hash of the bytes added so far.
+     *
+     * @return the hash
+     */
+    public long value() {
+        return crc32c.getValue() << 32 | crc32.getValue();
+    }
+
+    /**
+     * Returns the number of bytes added so far.
+     *
+     * @return the number of bytes
+     */
+    public long length() {
+        return length;
+    }
+}
@@ -0,0 +1,164 @@
+package com.sigmaproject.utils;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Index of records by their string ID, specialized for numeric IDs.
+ * <p>
+ * IDs that are canonical non-negative numbers (no sign, no leading zeros, at most
+ * 18 digits) are stored as {@code long} keys in an {@link IdTable}, so a lookup
+ * neither hashes a string nor creates an object. Values are kept in insertion order,
+ * which is also the order of {@link #values()}. Records cannot be removed.
+ * </p>
+ *
+ * @param <V> type of the indexed records
+ */
+public class IdIndex<V> {
+
+    /**
+     * Longest ID, in digits, that is stored as a number.
+     */
+    public static final int MAX_NUMERIC_ID_DIGITS = 18;
+
+    /**
+     * Returned by {@link #numericKey(CharSequence)} for IDs that are not canonical numbers.
+     */
+    public static final long NOT_NUMERIC = -1L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final IdTable ids = new IdTable();
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    /**
+     * Returns the numeric key of an ID.
+     *
+     * @param id the ID
+     * @return the value of the ID if it is a canonical non-negative number, {@link #NOT_NUMERIC} otherwise
+     */
+    public static long numericKey(CharSequence id) {
+        int length = id.length();
+        if (length == 0 || length > MAX_NUMERIC_ID_DIGITS || (length > 1 && id.charAt(0) == '0')) {
+            return NOT_NUMERIC;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_NUMERIC;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of indexed records.
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Checks whether the index holds no records.
+     *
+     * @return {@code true} if the index is empty
+     */
+    public boolean isEmpty() {
+        return ids.size() == 0;
+    }
+
+    /**
+     * Checks whether a record with the given ID is indexed.
+     *
+     * @param id the ID
+     * @return {@code true} if a record with the ID is indexed
+     */
+    public boolean containsKey(String id) {
+        return ids.indexOf(id) >= 0;
+    }
+
+    /**
+     * Returns the record with the given ID.
+     *
+     * @param id the ID
+     * @return the record, or {@code null} if no record has the ID
+     */
+    @SuppressWarnings("unchecked")
+    public V get(String id) {
+        int position = ids.indexOf(id);
+        return position >= 0 ? (V) values[position] : null;
+    }
+
+    /**
+     * Indexes a record under the given ID, replacing the record that had the ID before.
+     * A replaced record keeps its position in the insertion order.
+     *
+     * @param id    the ID
+     * @param value the record
+     * @return the replaced record, or {@code null} if the ID was not indexed
+     */
+    @SuppressWarnings("unchecked")
+    public V put(String id, V value) {
+        int position = ids.add(id);
+        if (position < 0) {
+            V previous = (V) values[-1 - position];
+            values[-1 - position] = value;
+            return previous;
+        }
+        if (position == values.length) {
+            values = Arrays.copyOf(values, position * 2);
+        }
+        values[position] = value;
+        return null;
+    }
+
+    /**
+     * Removes all records.
+     */
+    public void clear() {
+        Arrays.fill(values, 0, ids.size(), null);
+        ids.clear();
+    }
+
+    /**
+     * Returns the records in insertion order.
+     *
+     * @return a read-only view of the records
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Iterator<V>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < ids.size();
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public V next() {
+                        if (next >= ids.size()) {
+                            throw new NoSuchElementException();
+                        }
+                        return (V) values[next++];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ids.size();
+            }
+        };
+    }
+}
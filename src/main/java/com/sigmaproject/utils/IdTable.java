@@ -0,0 +1,154 @@
+package com.sigmaproject.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table of string IDs that numbers every ID by its insertion order.
+ * <p>
+ * IDs that are canonical numbers, as defined by {@link IdIndex#numericKey(CharSequence)},
+ * are kept as {@code long} keys in an open-addressing hash table with linear probing, so
+ * a lookup neither hashes a string nor creates an object. All other IDs fall back to a
+ * regular hash map. The position of an ID can serve as the index of its record in any
+ * column or array that is filled in the same order. IDs cannot be removed.
+ * </p>
+ */
+public final class IdTable {
+
+    private static final int INITIAL_TABLE_SIZE = 16;
+
+    /**
+     * Hash table of numeric keys; a slot is empty when its entry in {@link #slots} is zero.
+     */
+    private long[] keys = new long[INITIAL_TABLE_SIZE];
+
+    /**
+     * Position of the ID plus one, or zero for an empty slot.
+     */
+    private int[] slots = new int[INITIAL_TABLE_SIZE];
+    private int numericCount;
+
+    private final Map<String, Integer> otherKeys = new HashMap<>();
+
+    private int size;
+
+    /**
+     * Returns the number of IDs in the table.
+     *
+     * @return the number of IDs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the position of an ID.
+     *
+     * @param id the ID
+     * @return the position of the ID, or {@code -1} if it is not in the table
+     */
+    public int indexOf(String id) {
+        long key = IdIndex.numericKey(id);
+        if (key == IdIndex.NOT_NUMERIC) {
+            Integer position = otherKeys.get(id);
+            return position != null ? position : -1;
+        }
+        return indexOf(key);
+    }
+
+    /**
+     * Returns the position of an ID that is a canonical number.
+     *
+     * @param key the value of the ID
+     * @return the position of the ID, or {@code -1} if it is not in the table
+     */
+    public int indexOf(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] != 0) {
+            if (keys[slot] == key) {
+                return slots[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds an ID at the next position unless it is already in the table.
+     *
+     * @param id the ID
+     * @return the position of the added ID, or {@code -1 - position} of the ID that was already there
+     */
+    public int add(String id) {
+        long key = IdIndex.numericKey(id);
+        if (key != IdIndex.NOT_NUMERIC) {
+            return add(key);
+        }
+        Integer existing = otherKeys.putIfAbsent(id, size);
+        return existing != null ? -1 - existing : size++;
+    }
+
+    /**
+     * Adds an ID that is a canonical number at the next position unless it is already in the table.
+     *
+     * @param key the value of the ID
+     * @return the position of the added ID, or {@code -1 - position} of the ID that was already there
+     */
+    public int add(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] != 0) {
+            if (keys[slot] == key) {
+                return -slots[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        int position = size++;
+        keys[slot] = key;
+        slots[slot] = position + 1;
+        if (++numericCount * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return position;
+    }
+
+    /**
+     * Removes all IDs.
+     */
+    public void clear() {
+        Arrays.fill(slots, 0);
+        otherKeys.clear();
+        numericCount = 0;
+        size = 0;
+    }
+
+    private void rehash(int tableSize) {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new long[tableSize];
+        slots = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != 0) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                slots[slot] = oldSlots[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a key, as consecutive IDs are common.
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,78 @@
+package com.sigmaproject.utils;
+
+/**
+ * Location of a line in an input file, packed into a single {@code long}.
+ * <p>
+ * A span holds the position of the file in the input file list, the byte offset
+ * of the line and its length including the line break, so that records can keep
+ * their source location in a primitive column. Spans that do not fit the packed
+ * layout are not recorded and {@link #NONE} is used instead.
+ * </p>
+ */
+public final class LineSpan {
+
+    /**
+     * Marks a record without a source span.
+     */
+    public static final long NONE = -1L;
+
+    private static final int LENGTH_BITS = 13;
+    private static final int OFFSET_BITS = 34;
+    private static final int FILE_BITS = 16;
+
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final long FILE_MASK = (1L << FILE_BITS) - 1;
+
+    /**
+     * Private constructor to prevent instantiation of the utility class.
+     */
+    private LineSpan() {
+    }
+
+    /**
+     * Packs a span.
+     *
+     * @param fileIndex position of the file in the input file list
+     * @param offset    byte offset of the line in the file
+     * @param length    length of the line in bytes, including the line break
+     * @return the packed span, or {@link #NONE} if a value is out of range
+     */
+    public static long of(int fileIndex, long offset, int length) {
+        if (fileIndex < 0 || fileIndex > FILE_MASK || offset < 0 || offset > OFFSET_MASK
+                || length <= 0 || length > LENGTH_MASK) {
+            return NONE;
+        }
+        return (long) fileIndex << (OFFSET_BITS + LENGTH_BITS) | offset << LENGTH_BITS | length;
+    }
+
+    /**
+     * Returns the position of the file of a span in the input file list.
+     *
+     * @param span the packed span
+     * @return the file index
+     */
+    public static int fileIndex(long span) {
+        return (int) (span >>> (OFFSET_BITS + LENGTH_BITS) & FILE_MASK);
+    }
+
+    /**
+     * Returns the byte offset of the line of a span.
+     *
+     * @param span the packed span
+     * @return the byte offset
+     */
+    public static long offset(long span) {
+        return span >>> LENGTH_BITS & OFFSET_MASK;
+    }
+
+    /**
+     * Returns the length of the line of a span, including the line break.
+     *
+     * @param span the packed span
+     * @return the length in bytes
+     */
+    public static int length(long span) {
+        return (int) (span & LENGTH_MASK);
+    }
+}
@@ -0,0 +1,267 @@
+package com.sigmaproject.utils;
+
+/**
+ * Fixed-point money arithmetic on amounts stored as {@code long} cents.
+ * <p>
+ * Amounts are carried as primitive cents so that parsing, summing and rounding
+ * create no objects. {@link #parseCents(CharSequence)} parses a salary in a single
+ * pass without exceptions and reports values it cannot accept with a negative
+ * status code instead of throwing.
+ * </p>
+ */
+public final class Money {
+
+    /**
+     * Status code for text that is not a number.
+     */
+    public static final long INVALID = -1L;
+
+    /**
+     * Status code for a number that is zero or negative.
+     */
+    public static final long NOT_POSITIVE = -2L;
+
+    /**
+     * Status code for a positive number that cannot be held in whole cents,
+     * for example one with more than two decimals, an exponent or hexadecimal digits.
+     * Such values have to be parsed as a {@code double}.
+     */
+    public static final long INEXACT = -3L;
+
+    /**
+     * The largest number of cents for which {@code cents / 100.0} is still the
+     * correctly rounded {@code double} of the amount.
+     */
+    private static final long MAX_EXACT_CENTS = 1L << 53;
+
+    private static final String INFINITY = "Infinity";
+    private static final String NAN = "NaN";
+
+    /**
+     * Private constructor to prevent instantiation of the utility class.
+     */
+    private Money() {
+    }
+
+    /**
+     * Parses a decimal amount into cents.
+     * <p>
+     * Accepts the decimal syntax of {@link Double#parseDouble(String)}. Surrounding
+     * whitespace is ignored.
+     * </p>
+     *
+     * @param text the text to parse
+     * @return the positive amount in cents, or one of {@link #INVALID},
+     * {@link #NOT_POSITIVE} and {@link #INEXACT}
+     */
+    public static long parseCents(CharSequence text) {
+        return parse(text, null, 0, text.length());
+    }
+
+    /**
+     * Parses a decimal amount encoded as ASCII bytes into cents.
+     *
+     * @param bytes the buffer holding the amount
+     * @param from  index of the first byte of the amount
+     * @param to    index after the last byte of the amount
+     * @return the positive amount in cents, or one of {@link #INVALID},
+     * {@link #NOT_POSITIVE} and {@link #INEXACT}
+     * @see #parseCents(CharSequence)
+     */
+    public static long parseCents(byte[] bytes, int from, int to) {
+        return parse(null, bytes, from, to);
+    }
+
+    /**
+     * Converts cents to the {@code double} that {@link Double#parseDouble(String)}
+     * returns for the same amount.
+     *
+     * @param cents the amount in cents
+     * @return the amount as a {@code double}
+     */
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Converts a {@code double} amount back to cents if it holds a whole number of cents.
+     *
+     * @param value the amount
+     * @return the amount in cents, or {@link #INEXACT} if the value is not a whole number of cents
+     */
+    public static long toCents(double value) {
+        double scaled = value * 100;
+        if (!(scaled > -MAX_EXACT_CENTS && scaled < MAX_EXACT_CENTS)) {
+            return INEXACT;
+        }
+        long cents = Math.round(scaled);
+        return toDouble(cents) == value ? cents : INEXACT;
+    }
+
+    /**
+     * Divides and rounds towards positive infinity.
+     *
+     * @param dividend the dividend, for example a sum of cents
+     * @param divisor  the positive divisor, for example a count
+     * @return the quotient rounded up
+     */
+    public static long ceilDiv(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        return quotient * divisor == dividend || dividend < 0 ? quotient : quotient + 1;
+    }
+
+    /**
+     * Formats cents with exactly two decimals, for example {@code 3000.00}.
+     *
+     * @param cents the amount in cents
+     * @return the formatted amount
+     */
+    public static String format(long cents) {
+        StringBuilder sb = new StringBuilder(24);
+        appendTo(sb, cents);
+        return sb.toString();
+    }
+
+    /**
+     * Appends cents with exactly two decimals to the given builder.
+     *
+     * @param sb    the builder to append to
+     * @param cents the amount in cents
+     */
+    public static void appendTo(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        sb.append(cents / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+
+    /**
+     * Parses either a char sequence or a byte range; exactly one of {@code text} and {@code bytes} is set.
+     */
+    private static long parse(CharSequence text, byte[] bytes, int from, int to) {
+        while (from < to && charAt(text, bytes, from) <= ' ') {
+            from++;
+        }
+        while (to > from && charAt(text, bytes, to - 1) <= ' ') {
+            to--;
+        }
+
+        int i = from;
+        boolean negative = false;
+        if (i < to) {
+            char sign = charAt(text, bytes, i);
+            if (sign == '+' || sign == '-') {
+                negative = sign == '-';
+                i++;
+            }
+        }
+        if (i + 1 < to && charAt(text, bytes, i) == '0' && (charAt(text, bytes, i + 1) | 0x20) == 'x') {
+            // Hexadecimal floating point: rare enough to leave to Double.parseDouble.
+            return INEXACT;
+        }
+        if (regionMatches(text, bytes, i, to, INFINITY)) {
+            return negative ? NOT_POSITIVE : INEXACT;
+        }
+        if (regionMatches(text, bytes, i, to, NAN)) {
+            return INVALID;
+        }
+
+        boolean inexact = false;
+        long units = 0;
+        int intDigits = 0;
+        char c;
+        while (i < to && isDigit(c = charAt(text, bytes, i))) {
+            if (units <= MAX_EXACT_CENTS / 100) {
+                units = units * 10 + (c - '0');
+            } else {
+                inexact = true;
+            }
+            intDigits++;
+            i++;
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < to && charAt(text, bytes, i) == '.') {
+            i++;
+            while (i < to && isDigit(c = charAt(text, bytes, i))) {
+                if (fractionDigits < 2) {
+                    fraction = fraction * 10 + (c - '0');
+                } else if (c != '0') {
+                    inexact = true;
+                }
+                fractionDigits++;
+                i++;
+            }
+        }
+        if (intDigits + fractionDigits == 0) {
+            return INVALID;
+        }
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+
+        if (i < to && (charAt(text, bytes, i) | 0x20) == 'e') {
+            i++;
+            if (i < to && (charAt(text, bytes, i) == '+' || charAt(text, bytes, i) == '-')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < to && isDigit(charAt(text, bytes, i))) {
+                exponentDigits++;
+                i++;
+            }
+            if (exponentDigits == 0) {
+                return INVALID;
+            }
+            inexact = true;
+        }
+        if (i < to) {
+            int suffix = charAt(text, bytes, i) | 0x20;
+            if (suffix == 'd' || suffix == 'f') {
+                i++;
+            }
+        }
+        if (i != to) {
+            return INVALID;
+        }
+
+        if (negative) {
+            return NOT_POSITIVE;
+        }
+        if (inexact) {
+            return INEXACT;
+        }
+        long cents = units * 100 + fraction;
+        if (cents > MAX_EXACT_CENTS) {
+            return INEXACT;
+        }
+        return cents == 0 ? NOT_POSITIVE : cents;
+    }
+
+    private static char charAt(CharSequence text, byte[] bytes, int index) {
+        return text != null ? text.charAt(index) : (char) (bytes[index] & 0xff);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean regionMatches(CharSequence text, byte[] bytes, int from, int to, String word) {
+        if (to - from != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (charAt(text, bytes, from + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+package com.sigmaproject.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exact nearest-rank percentiles of primitive arrays by selection instead of sorting.
+ * <p>
+ * The p-th percentile of {@code n} values is the value at rank {@code ceil(p * n)}
+ * in ascending order. {@link #select(double[], int, int, int)} finds it with
+ * quickselect in expected linear time. It partially reorders the array, so that
+ * several percentiles can be selected one after another from the same array.
+ * </p>
+ */
+public final class Percentiles {
+
+    /**
+     * Private constructor to prevent instantiation of the utility class.
+     */
+    private Percentiles() {
+    }
+
+    /**
+     * Returns the zero-based position of the nearest-rank percentile.
+     *
+     * @param n the number of values, at least one
+     * @param p the percentile as a fraction between 0 and 1
+     * @return the position of the percentile in the sorted values
+     */
+    public static int index(int n, double p) {
+        long rank = (long) Math.ceil(p * n);
+        return (int) Math.max(0, Math.min(n, rank) - 1);
+    }
+
+    /**
+     * Moves the value that would be at position {@code k} of the sorted range into place.
+     * Afterwards no value before {@code k} is greater and no value after {@code k} is smaller.
+     *
+     * @param values the values, none of them NaN
+     * @param from   start of the range, inclusive
+     * @param to     end of the range, exclusive
+     * @param k      the position to select, within the range
+     * @return the selected value
+     */
+    public static double select(double[] values, int from, int to, int k) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = values[lo + ThreadLocalRandom.current().nextInt(hi - lo + 1)];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double tmp = values[i];
+                    values[i] = values[j];
+                    values[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+}
@@ -0,0 +1,176 @@
+package com.sigmaproject.utils;
+
+import java.util.Arrays;
+
+/**
+ * Compact, mergeable sketch of positive values for estimating quantiles.
+ * <p>
+ * Values are counted in logarithmic buckets: bucket {@code i} holds the values in
+ * {@code (gamma^(i-1), gamma^i]} with {@code gamma = (1 + a) / (1 - a)} for the relative
+ * accuracy {@code a}. Every estimated quantile is then within a relative error of
+ * {@code a} of the true nearest-rank value, regardless of the number of values, and
+ * the sketch needs only a few thousand counters for any realistic salary range.
+ * Sketches with the same accuracy can be merged by adding their counters.
+ * </p>
+ */
+public class QuantileSketch {
+
+    /**
+     * Relative accuracy used for salary percentiles.
+     */
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.005;
+
+    private static final int INITIAL_BUCKETS = 64;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+
+    /**
+     * Bucket counters; {@code counts[k]} counts bucket {@code offset + k}.
+     */
+    private long[] counts = new long[INITIAL_BUCKETS];
+    private int offset;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param relativeAccuracy the relative accuracy of the estimates, between 0 and 1 exclusive
+     */
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1: " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    /**
+     * Returns the number of counted values.
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Counts a value. Values that are not positive, including NaN, are ignored.
+     *
+     * @param value the value
+     */
+    public void add(double value) {
+        if (!(value > 0) || value == Double.POSITIVE_INFINITY) {
+            return;
+        }
+        int bucket = (int) Math.ceil(Math.log(value) / logGamma);
+        if (count == 0) {
+            center(bucket);
+        }
+        int k = slot(bucket);
+        counts[k]++;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds the values counted by another sketch.
+     *
+     * @param other a sketch with the same relative accuracy
+     * @throws IllegalArgumentException if the sketches have different accuracies
+     */
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with different accuracies");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        int first = firstBucket(other);
+        int last = lastBucket(other);
+        if (count == 0) {
+            center(first);
+        }
+        slot(first);
+        slot(last);
+        for (int bucket = first; bucket <= last; bucket++) {
+            counts[bucket - offset] += other.counts[bucket - other.offset];
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Estimates the nearest-rank quantile.
+     *
+     * @param p the quantile as a fraction between 0 and 1
+     * @return the estimated value, or NaN if the sketch is empty; the lowest and the
+     * highest rank return the exact minimum and maximum
+     */
+    public double quantile(double p) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, Math.min(count, (long) Math.ceil(p * count)));
+        if (rank == 1) {
+            return min;
+        }
+        if (rank == count) {
+            return max;
+        }
+        long seen = 0;
+        for (int k = 0; k < counts.length; k++) {
+            seen += counts[k];
+            if (seen >= rank) {
+                double estimate = 2 * Math.pow(gamma, offset + k) / (gamma + 1);
+                return Math.max(min, Math.min(max, estimate));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Places the first bucket of an empty sketch in the middle of {@link #counts}.
+     */
+    private void center(int bucket) {
+        offset = bucket - counts.length / 2;
+    }
+
+    /**
+     * Returns the index in {@link #counts} of a bucket, growing the array as needed.
+     */
+    private int slot(int bucket) {
+        if (bucket < offset) {
+            int shift = Math.max(offset - bucket, counts.length / 2);
+            long[] grown = new long[counts.length + shift];
+            System.arraycopy(counts, 0, grown, shift, counts.length);
+            counts = grown;
+            offset -= shift;
+        } else if (bucket - offset >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(bucket - offset + 1, counts.length + counts.length / 2));
+        }
+        return bucket - offset;
+    }
+
+    private static int firstBucket(QuantileSketch sketch) {
+        int k = 0;
+        while (sketch.counts[k] == 0) {
+            k++;
+        }
+        return sketch.offset + k;
+    }
+
+    private static int lastBucket(QuantileSketch sketch) {
+        int k = sketch.counts.length - 1;
+        while (sketch.counts[k] == 0) {
+            k--;
+        }
+        return sketch.offset + k;
+    }
+}
@@ -0,0 +1,255 @@
+package com.sigmaproject.utils;
+
+import java.util.Arrays;
+
+/**
+ * Stable radix sorts that return the sorted order of precomputed keys.
+ * <p>
+ * Both sorts leave the keys untouched and return a permutation: position {@code k}
+ * of the result holds the index of the key that comes {@code k}-th. Keys that are equal
+ * keep their original relative order in ascending and in descending order alike, which
+ * is what a stable sort with a reversed comparator does.
+ * </p>
+ */
+public final class RadixSort {
+
+    /**
+     * Bits of a long key sorted per pass of the LSD sort.
+     */
+    private static final int DIGIT_BITS = 11;
+    private static final int DIGIT_MASK = (1 << DIGIT_BITS) - 1;
+
+    /**
+     * Ranges shorter than this are sorted by insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * Bucket of a byte key that ends before the current depth; byte values use buckets 1 to 256.
+     */
+    private static final int END_BUCKET = 0;
+    private static final int BUCKETS = 257;
+
+    /**
+     * Private constructor to prevent instantiation of the utility class.
+     */
+    private RadixSort() {
+    }
+
+    /**
+     * Maps a {@code double} to a {@code long} whose unsigned order is the order of
+     * {@link Double#compare(double, double)}, with {@code -0.0} before {@code 0.0}
+     * and every NaN after positive infinity.
+     *
+     * @param value the value
+     * @return the sortable key
+     */
+    public static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ (bits >> 63 | Long.MIN_VALUE);
+    }
+
+    /**
+     * Sorts {@code long} keys by their unsigned value with an LSD radix sort.
+     * Passes over digits that are equal in every key are skipped.
+     *
+     * @param keys       the keys
+     * @param descending whether to sort in descending order
+     * @return the indexes of the keys in sorted order
+     */
+    public static int[] sortUnsigned(long[] keys, boolean descending) {
+        int n = keys.length;
+        long[] current = new long[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            current[i] = descending ? ~keys[i] : keys[i];
+            order[i] = i;
+        }
+        if (n < INSERTION_SORT_THRESHOLD) {
+            insertionSort(current, order);
+            return order;
+        }
+
+        long[] nextKeys = new long[n];
+        int[] nextOrder = new int[n];
+        int[] count = new int[DIGIT_MASK + 2];
+        for (int shift = 0; shift < Long.SIZE; shift += DIGIT_BITS) {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < n; i++) {
+                count[(int) (current[i] >>> shift & DIGIT_MASK) + 1]++;
+            }
+            boolean constant = false;
+            for (int d = 1; d < count.length; d++) {
+                if (count[d] == n) {
+                    constant = true;
+                    break;
+                }
+            }
+            if (constant) {
+                continue;
+            }
+            for (int d = 1; d < count.length; d++) {
+                count[d] += count[d - 1];
+            }
+            for (int i = 0; i < n; i++) {
+                int position = count[(int) (current[i] >>> shift & DIGIT_MASK)]++;
+                nextKeys[position] = current[i];
+                nextOrder[position] = order[i];
+            }
+            long[] swapKeys = current;
+            current = nextKeys;
+            nextKeys = swapKeys;
+            int[] swapOrder = order;
+            order = nextOrder;
+            nextOrder = swapOrder;
+        }
+        return order;
+    }
+
+    /**
+     * Sorts byte string keys stored in a shared pool with an MSD radix sort.
+     * <p>
+     * Keys are compared byte by byte as unsigned values; a key that is a prefix of
+     * another comes first.
+     * </p>
+     *
+     * @param pool       the bytes of all keys
+     * @param offsets    start of each key in the pool
+     * @param lengths    length of each key
+     * @param descending whether to sort in descending order
+     * @return the indexes of the keys in sorted order
+     */
+    public static int[] sortBytes(byte[] pool, int[] offsets, int[] lengths, boolean descending) {
+        int n = offsets.length;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        int[] aux = new int[n];
+        int[] count = new int[BUCKETS + 1];
+
+        // Pending ranges as (from, to, depth) triples; an explicit stack bounds the
+        // call depth for long keys.
+        int[] stack = new int[3 * 64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n;
+        stack[top++] = 0;
+        while (top > 0) {
+            int depth = stack[--top];
+            int to = stack[--top];
+            int from = stack[--top];
+            if (to - from < INSERTION_SORT_THRESHOLD) {
+                insertionSort(pool, offsets, lengths, order, from, to, depth, descending);
+                continue;
+            }
+
+            Arrays.fill(count, 0);
+            for (int i = from; i < to; i++) {
+                count[bucket(pool, offsets, lengths, order[i], depth) + 1]++;
+            }
+            int single = -1;
+            for (int b = 0; b < BUCKETS; b++) {
+                if (count[b + 1] == to - from) {
+                    single = b;
+                }
+            }
+            if (single == END_BUCKET) {
+                continue;
+            }
+            if (single < 0) {
+                // Bucket starts in the requested direction; the end bucket always sorts first ascending.
+                int start = from;
+                for (int k = 0; k < BUCKETS; k++) {
+                    int b = descending ? BUCKETS - 1 - k : k;
+                    int size = count[b + 1];
+                    count[b + 1] = start;
+                    start += size;
+                }
+                for (int i = from; i < to; i++) {
+                    int row = order[i];
+                    aux[count[bucket(pool, offsets, lengths, row, depth) + 1]++] = row;
+                }
+                System.arraycopy(aux, from, order, from, to - from);
+            }
+
+            int start = from;
+            for (int k = 0; k < BUCKETS; k++) {
+                int b = descending ? BUCKETS - 1 - k : k;
+                int end = single < 0 ? count[b + 1] : (b == single ? to : start);
+                if (b != END_BUCKET && end - start > 1) {
+                    if (top + 3 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = start;
+                    stack[top++] = end;
+                    stack[top++] = depth + 1;
+                }
+                start = end;
+            }
+        }
+        return order;
+    }
+
+    private static int bucket(byte[] pool, int[] offsets, int[] lengths, int row, int depth) {
+        return depth < lengths[row] ? (pool[offsets[row] + depth] & 0xff) + 1 : END_BUCKET;
+    }
+
+    private static void insertionSort(long[] keys, int[] order) {
+        for (int i = 1; i < keys.length; i++) {
+            long key = keys[i];
+            int row = order[i];
+            int j = i - 1;
+            while (j >= 0 && Long.compareUnsigned(keys[j], key) > 0) {
+                keys[j + 1] = keys[j];
+                order[j + 1] = order[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            order[j + 1] = row;
+        }
+    }
+
+    private static void insertionSort(byte[] pool, int[] offsets, int[] lengths, int[] order,
+                                      int from, int to, int depth, boolean descending) {
+        for (int i = from + 1; i < to; i++) {
+            int row = order[i];
+            int j = i - 1;
+            while (j >= from) {
+                int cmp = compare(pool, offsets, lengths, order[j], row, depth);
+                if (descending ? cmp >= 0 : cmp <= 0) {
+                    break;
+                }
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = row;
+        }
+    }
+
+    /**
+     * Compares two byte keys stored in a shared pool, skipping a common prefix of known length.
+     *
+     * @param pool    the bytes of all keys
+     * @param offsets start of each key in the pool
+     * @param lengths length of each key
+     * @param a       index of the first key
+     * @param b       index of the second key
+     * @param depth   length of a prefix known to be equal in both keys
+     * @return a negative number, zero or a positive number as the first key is less than,
+     * equal to or greater than the second
+     */
+    public static int compare(byte[] pool, int[] offsets, int[] lengths, int a, int b, int depth) {
+        int lengthA = lengths[a];
+        int lengthB = lengths[b];
+        int limit = Math.min(lengthA, lengthB);
+        for (int k = depth; k < limit; k++) {
+            int x = pool[offsets[a] + k] & 0xff;
+            int y = pool[offsets[b] + k] & 0xff;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return lengthA - lengthB;
+    }
+}
@@ -0,0 +1,151 @@
+package com.sigmaproject.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Formats salaries the way the {@code #.##} decimal pattern does, without creating objects.
+ * <p>
+ * A salary is written with at most two decimals, rounded half-even, and trailing zeros
+ * after the decimal separator are dropped, so {@code 4500.50} becomes {@code 4500.5} and
+ * {@code 3000.00} becomes {@code 3000}. Positive salaries that hold a whole number of
+ * cents, which is every salary accepted from an exact decimal, are written straight
+ * from their cents. Any other value is formatted by a cached {@link DecimalFormat}.
+ * </p>
+ */
+public final class SalaryFormat {
+
+    /**
+     * Longest formatted salary produced by the fast path: eleven integer digits,
+     * a separator of up to three UTF-8 bytes and two decimals.
+     */
+    public static final int MAX_FAST_LENGTH = 16;
+
+    /**
+     * Salaries below this bound are far enough from the next {@code double} that their
+     * cents are the only two-decimal number that rounds to them.
+     */
+    private static final double FAST_PATH_LIMIT = 1e11;
+
+    private static final String PATTERN = "#.##";
+
+    private static final ThreadLocal<DecimalFormat> DECIMAL_FORMAT =
+            ThreadLocal.withInitial(() -> new DecimalFormat(PATTERN));
+
+    /**
+     * The decimal separator of the default locale; {@code null} if the locale
+     * uses digits other than ASCII ones and the fast path cannot be used.
+     */
+    private static final String SEPARATOR;
+    private static final byte[] SEPARATOR_BYTES;
+
+    static {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        SEPARATOR = symbols.getZeroDigit() == '0' ? String.valueOf(symbols.getDecimalSeparator()) : null;
+        SEPARATOR_BYTES = SEPARATOR != null ? SEPARATOR.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Private constructor to prevent instantiation of the utility class.
+     */
+    private SalaryFormat() {
+    }
+
+    /**
+     * Formats a salary.
+     *
+     * @param value the salary
+     * @return the formatted salary
+     */
+    public static String format(double value) {
+        long cents = fastCents(value);
+        if (cents < 0) {
+            return slowFormat(value);
+        }
+        StringBuilder sb = new StringBuilder(MAX_FAST_LENGTH);
+        appendCents(sb, cents);
+        return sb.toString();
+    }
+
+    /**
+     * Appends a formatted salary to the given builder.
+     *
+     * @param sb    the builder to append to
+     * @param value the salary
+     */
+    public static void appendTo(StringBuilder sb, double value) {
+        long cents = fastCents(value);
+        if (cents < 0) {
+            sb.append(slowFormat(value));
+        } else {
+            appendCents(sb, cents);
+        }
+    }
+
+    /**
+     * Encodes a formatted salary as UTF-8 into the given buffer if it can be done
+     * without creating objects.
+     *
+     * @param value the salary
+     * @param dest  the buffer, with at least {@link #MAX_FAST_LENGTH} bytes free from {@code pos}
+     * @param pos   the position to write at
+     * @return the position after the written bytes, or {@code -1} if nothing was written
+     * and the salary has to be formatted with {@link #format(double)}
+     */
+    public static int encode(double value, byte[] dest, int pos) {
+        long cents = fastCents(value);
+        if (cents < 0) {
+            return -1;
+        }
+        long units = cents / 100;
+        int fraction = (int) (cents % 100);
+        int end = pos;
+        do {
+            end++;
+            units /= 10;
+        } while (units > 0);
+        units = cents / 100;
+        for (int i = end - 1; i >= pos; i--) {
+            dest[i] = (byte) ('0' + units % 10);
+            units /= 10;
+        }
+        if (fraction != 0) {
+            System.arraycopy(SEPARATOR_BYTES, 0, dest, end, SEPARATOR_BYTES.length);
+            end += SEPARATOR_BYTES.length;
+            dest[end++] = (byte) ('0' + fraction / 10);
+            if (fraction % 10 != 0) {
+                dest[end++] = (byte) ('0' + fraction % 10);
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Returns the cents of a salary that can be formatted on the fast path.
+     *
+     * @param value the salary
+     * @return the salary in cents, or a negative number if the fast path does not apply
+     */
+    private static long fastCents(double value) {
+        if (SEPARATOR == null || !(value > 0 && value < FAST_PATH_LIMIT)) {
+            return -1;
+        }
+        return Money.toCents(value);
+    }
+
+    private static void appendCents(StringBuilder sb, long cents) {
+        int fraction = (int) (cents % 100);
+        sb.append(cents / 100);
+        if (fraction != 0) {
+            sb.append(SEPARATOR).append(fraction / 10);
+            if (fraction % 10 != 0) {
+                sb.append(fraction % 10);
+            }
+        }
+    }
+
+    private static String slowFormat(double value) {
+        return DECIMAL_FORMAT.get().format(value);
+    }
+}